@@ -0,0 +1,147 @@
+package dev.sanda.datafi.code_generator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures how the annotation processor scales with the size of the data model, by running it
+ * (annotation processing only, no class file generation) over synthetic models of 100, 1,000
+ * and 5,000 entities. Each entity has a @FindBy field and a @ManyToOne reference to the previous one.
+ * Run via: mvn -P benchmark test-compile exec:exec -Djmh.includes=AnnotationProcessorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnnotationProcessorBenchmark {
+
+  @Param({ "100", "1000", "5000" })
+  private int entityCount;
+
+  private JavaCompiler compiler;
+  private Path sourceDir;
+  private Path outputDir;
+  private List<Path> sources;
+
+  @Setup(Level.Trial)
+  public void generateModel() throws IOException {
+    compiler = ToolProvider.getSystemJavaCompiler();
+    sourceDir = Files.createTempDirectory("datafi-benchmark-src");
+    final Path modelDir = Files.createDirectories(
+      sourceDir.resolve("bench/model")
+    );
+    sources = new ArrayList<>();
+    final Path application = sourceDir.resolve(
+      "bench/BenchmarkApplication.java"
+    );
+    Files.write(
+      application,
+      (
+        "package bench;\n" +
+        "@dev.sanda.datafi.annotations.MainClass\n" +
+        "public class BenchmarkApplication {}\n"
+      ).getBytes()
+    );
+    sources.add(application);
+    for (int i = 0; i < entityCount; i++) {
+      final Path entity = modelDir.resolve("Entity" + i + ".java");
+      Files.write(entity, entitySource(i).getBytes());
+      sources.add(entity);
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void createOutputDir() throws IOException {
+    outputDir = Files.createTempDirectory("datafi-benchmark-out");
+  }
+
+  @TearDown(Level.Invocation)
+  public void deleteOutputDir() throws IOException {
+    delete(outputDir);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteModel() throws IOException {
+    delete(sourceDir);
+  }
+
+  @Benchmark
+  public boolean process() throws IOException {
+    try (
+      StandardJavaFileManager fileManager = compiler.getStandardFileManager(
+        null,
+        null,
+        null
+      )
+    ) {
+      final Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(
+        sources.stream().map(Path::toFile).collect(Collectors.toList())
+      );
+      final JavaCompiler.CompilationTask task = compiler.getTask(
+        null,
+        fileManager,
+        null,
+        Arrays.asList(
+          "-proc:only",
+          "-classpath",
+          System.getProperty("java.class.path"),
+          "-s",
+          outputDir.toString(),
+          "-d",
+          outputDir.toString()
+        ),
+        null,
+        compilationUnits
+      );
+      task.setProcessors(Collections.singletonList(new AnnotationProcessor()));
+      return task.call();
+    }
+  }
+
+  private static String entitySource(int index) {
+    final String name = "Entity" + index;
+    final StringBuilder source = new StringBuilder()
+      .append("package bench.model;\n")
+      .append("import javax.persistence.*;\n")
+      .append("import dev.sanda.datafi.annotations.finders.FindBy;\n")
+      .append("@Entity\n")
+      .append("public class ").append(name).append(" {\n")
+      .append("  @Id private Long id;\n")
+      .append("  @FindBy private String name;\n");
+    if (index > 0) source
+      .append("  @ManyToOne private Entity").append(index - 1).append(" parent;\n")
+      .append("  public Entity").append(index - 1).append(" getParent() { return parent; }\n")
+      .append("  public void setParent(Entity").append(index - 1).append(" parent) { this.parent = parent; }\n");
+    return source
+      .append("  public Long getId() { return id; }\n")
+      .append("  public void setId(Long id) { this.id = id; }\n")
+      .append("  public String getName() { return name; }\n")
+      .append("  public void setName(String name) { this.name = name; }\n")
+      .append("}\n")
+      .toString();
+  }
+
+  private static void delete(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths
+        .sorted(Comparator.reverseOrder())
+        .forEach(path -> path.toFile().delete());
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package dev.sanda.datafi.persistence;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the compare-and-set based SequenceGenerator against the previous, monitor based
+ * implementation under contention.
+ * Run via: mvn -P benchmark test-compile exec:exec -Djmh.includes=SequenceGeneratorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SequenceGeneratorBenchmark {
+
+  private SequenceGenerator sequenceGenerator;
+  private LockingSequenceGenerator lockingSequenceGenerator;
+
+  @Setup
+  public void setup() {
+    sequenceGenerator = new SequenceGenerator(1);
+    lockingSequenceGenerator = new LockingSequenceGenerator(1);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long lockFreeSingleThread() {
+    return sequenceGenerator.nextId();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long lockingSingleThread() {
+    return lockingSequenceGenerator.nextId();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public long lockFreeContended() {
+    return sequenceGenerator.nextId();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public long lockingContended() {
+    return lockingSequenceGenerator.nextId();
+  }
+
+  /**
+   * The previous SequenceGenerator implementation, kept as a baseline.
+   */
+  static class LockingSequenceGenerator {
+
+    private static final long CUSTOM_EPOCH = 1420070400000L;
+    private static final int maxSequence = (1 << 12) - 1;
+
+    private final int nodeId;
+    private long lastTimestamp = -1L;
+    private long sequence = 0L;
+
+    LockingSequenceGenerator(int nodeId) {
+      this.nodeId = nodeId;
+    }
+
+    long nextId() {
+      long currentTimestamp = timestamp();
+      synchronized (this) {
+        if (currentTimestamp < lastTimestamp) {
+          throw new IllegalStateException("Invalid System Clock!");
+        }
+        if (currentTimestamp == lastTimestamp) {
+          sequence = (sequence + 1) & maxSequence;
+          if (sequence == 0) {
+            while (currentTimestamp == lastTimestamp) {
+              currentTimestamp = timestamp();
+            }
+          }
+        } else {
+          sequence = 0;
+        }
+        lastTimestamp = currentTimestamp;
+      }
+      long id = currentTimestamp << 22;
+      id |= (nodeId << 12);
+      id |= sequence;
+      return id;
+    }
+
+    private static long timestamp() {
+      return System.currentTimeMillis() - CUSTOM_EPOCH;
+    }
+  }
+}
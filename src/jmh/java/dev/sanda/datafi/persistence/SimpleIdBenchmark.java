@@ -0,0 +1,49 @@
+package dev.sanda.datafi.persistence;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the cost of instantiating a SimpleId the way Hibernate does when hydrating a loaded row
+ * (no-args constructor, followed by setting the loaded id), against the previous SimpleId which
+ * generated - and discarded - a new id in its field initializer.
+ * Run via: mvn -P benchmark test-compile exec:exec -Djmh.includes=SimpleIdBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class SimpleIdBenchmark {
+
+  private static final Long LOADED_ID = 1L;
+
+  @Benchmark
+  public SimpleId hydrate() {
+    final SimpleId simpleId = new SimpleId();
+    simpleId.setId(LOADED_ID);
+    return simpleId;
+  }
+
+  @Benchmark
+  public EagerSimpleId hydrateEagerlyGenerated() {
+    final EagerSimpleId simpleId = new EagerSimpleId();
+    simpleId.id = LOADED_ID;
+    return simpleId;
+  }
+
+  @Benchmark
+  public SimpleId generate() {
+    return SimpleId.generate();
+  }
+
+  /**
+   * The previous SimpleId, kept as a baseline.
+   */
+  static class EagerSimpleId {
+
+    private Long id = IdFactory.getNextId();
+  }
+}
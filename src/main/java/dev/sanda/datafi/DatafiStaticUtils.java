@@ -6,17 +6,21 @@ import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import dev.sanda.datafi.annotations.EntityApiSpec;
+import dev.sanda.datafi.code_generator.AnnotationProcessor;
+import dev.sanda.datafi.code_generator.ProcessingRoundState;
 import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
 import dev.sanda.datafi.persistence.Archivable;
 import dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo;
 import dev.sanda.datafi.reflection.runtime_services.CollectionsTypeResolver;
 import dev.sanda.datafi.reflection.runtime_services.ReflectionCache;
 import lombok.val;
+import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.atteo.evo.inflector.English;
 import org.hibernate.proxy.HibernateProxy;
 import org.hibernate.proxy.LazyInitializer;
 import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 
@@ -24,13 +28,15 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.element.*;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.persistence.*;
 import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -72,24 +78,124 @@ public class DatafiStaticUtils {
     String packageName,
     TypeSpec.Builder builder,
     ProcessingEnvironment processingEnvironment,
-    String templateType
+    String templateType,
+    Element... originatingElements
   ) {
     builder.addJavadoc(
-      entitySimpleName +
-      " " +
-      templateType +
-      " generated by dev.sanda @" +
-      LocalDateTime.now()
+      entitySimpleName + " " + templateType + " generated by dev.sanda"
     );
-    final TypeSpec newClass = builder.build();
-    final JavaFile javaFile = JavaFile.builder(packageName, newClass).build();
-
-    try {
-      javaFile.writeTo(System.out);
-      javaFile.writeTo(processingEnvironment.getFiler());
-    } catch (IOException e) {
-      e.printStackTrace();
+    for (Element originatingElement : originatingElements) {
+      builder.addOriginatingElement(originatingElement);
     }
+    writeToJavaFile(
+      JavaFile.builder(packageName, builder.build()).build(),
+      processingEnvironment
+    );
+  }
+
+  /**
+   * Queues the given file to be written by the next call to flushJavaFiles(...),
+   * or writes it immediately if there is no processing round in progress.
+   */
+  public static void writeToJavaFile(
+    JavaFile javaFile,
+    ProcessingEnvironment processingEnvironment
+  ) {
+    final ProcessingRoundState roundState = ProcessingRoundState.current();
+    if (roundState != null) roundState.getPendingJavaFiles().add(javaFile);
+    else writeJavaFiles(
+      Collections.singletonList(javaFile),
+      processingEnvironment
+    );
+  }
+
+  /**
+   * Writes all the generated sources queued by the current processing round.
+   */
+  public static void flushJavaFiles(
+    ProcessingEnvironment processingEnvironment
+  ) {
+    final List<JavaFile> pendingJavaFiles = ProcessingRoundState
+      .current()
+      .getPendingJavaFiles();
+    writeJavaFiles(pendingJavaFiles, processingEnvironment);
+    pendingJavaFiles.clear();
+  }
+
+  /**
+   * Renders the given sources in parallel - rendering a JavaFile
+   * is pure JavaPoet, and does not touch the (single threaded) compiler model -
+   * and then writes them via the Filer one at a time. Failures to write a
+   * source are reported as compilation errors.
+   * Generated sources are only echoed to the console if the
+   * datafi.verbose annotation processor option is set.
+   */
+  private static void writeJavaFiles(
+    List<JavaFile> javaFiles,
+    ProcessingEnvironment processingEnvironment
+  ) {
+    final List<String> sources = javaFiles
+      .parallelStream()
+      .map(JavaFile::toString)
+      .collect(Collectors.toList());
+    final boolean isVerbose = Boolean.parseBoolean(
+      processingEnvironment.getOptions().get(AnnotationProcessor.VERBOSE_OPTION)
+    );
+    for (int i = 0; i < sources.size(); i++) {
+      final JavaFile javaFile = javaFiles.get(i);
+      final String qualifiedName = javaFile.packageName.isEmpty()
+        ? javaFile.typeSpec.name
+        : javaFile.packageName + "." + javaFile.typeSpec.name;
+      if (isVerbose) System.out.println(sources.get(i));
+      final List<Element> originatingElements =
+        javaFile.typeSpec.originatingElements;
+      try {
+        final JavaFileObject sourceFile = processingEnvironment
+          .getFiler()
+          .createSourceFile(
+            qualifiedName,
+            originatingElements.toArray(new Element[0])
+          );
+        try (Writer writer = sourceFile.openWriter()) {
+          writer.write(sources.get(i));
+        }
+      } catch (IOException e) {
+        processingEnvironment
+          .getMessager()
+          .printMessage(
+            Diagnostic.Kind.ERROR,
+            "Failed to write generated source " +
+            qualifiedName +
+            ": " +
+            e.getMessage(),
+            originatingElements.isEmpty() ? null : originatingElements.get(0)
+          );
+      }
+    }
+  }
+
+  /**
+   * @return the source elements an entity's generated files are derived from,
+   * such that incremental builds can track them.
+   */
+  public static Element[] originatingElementsOf(EntityDalSpec entityDalSpec) {
+    return entityDalSpec.getEntityApiSpec() != null
+      ? new Element[] {
+        entityDalSpec.getElement(),
+        entityDalSpec.getEntityApiSpec(),
+      }
+      : new Element[] { entityDalSpec.getElement() };
+  }
+
+  public static Element[] originatingElementsOf(
+    List<EntityDalSpec> entityDalSpecs
+  ) {
+    return entityDalSpecs
+      .stream()
+      .flatMap(
+        entityDalSpec -> Arrays.stream(originatingElementsOf(entityDalSpec))
+      )
+      .toArray(Element[]::new);
   }
 
   public static List<VariableElement> getFieldsOf(TypeElement entity) {
@@ -101,6 +207,18 @@ public class DatafiStaticUtils {
       .collect(Collectors.toList());
   }
 
+  /**
+   * @return the superclass of the given type, or null if it directly extends java.lang.Object.
+   */
+  public static TypeElement superclassOf(TypeElement typeElement) {
+    val superclass = typeElement.getSuperclass();
+    if (superclass.getKind() != TypeKind.DECLARED) return null;
+    val superElement = (TypeElement) ((DeclaredType) superclass).asElement();
+    return superElement.getQualifiedName().contentEquals("java.lang.Object")
+      ? null
+      : superElement;
+  }
+
   public static List<ExecutableElement> getGettersOf(TypeElement entity) {
     if (entity == null) return new ArrayList<>();
     return entity
@@ -470,9 +588,30 @@ public class DatafiStaticUtils {
     return Sets.newHashSet(entities);
   }
 
+  /**
+   * Memoized for the duration of the current processing round, if any.
+   */
   public static boolean isDirectlyOrIndirectlyAnnotatedAs(
     Element element,
     Class<? extends Annotation> annotationType
+  ) {
+    final ProcessingRoundState roundState = ProcessingRoundState.current();
+    if (roundState == null) return resolveIsDirectlyOrIndirectlyAnnotatedAs(
+      element,
+      annotationType
+    );
+    return roundState
+      .getDirectOrIndirectAnnotations()
+      .computeIfAbsent(element, e -> new HashMap<>())
+      .computeIfAbsent(
+        annotationType,
+        type -> resolveIsDirectlyOrIndirectlyAnnotatedAs(element, type)
+      );
+  }
+
+  private static boolean resolveIsDirectlyOrIndirectlyAnnotatedAs(
+    Element element,
+    Class<? extends Annotation> annotationType
   ) {
     boolean isDirectlyAnnotated = element.getAnnotation(annotationType) != null;
     if (isDirectlyAnnotated) return true;
@@ -509,21 +648,25 @@ public class DatafiStaticUtils {
 
   //spring framework instantiates proxies for each autowired instance.
   //if we want the actual name of the actual bean, we need to
-  //'deproxy' the instance.
+  //'deproxy' the instance - be it a spring data repository proxy,
+  //a class based proxy of a generated dao impl, or not a proxy at all.
   public static String extractActualName(
     Object proxyInstance,
     String classNameKeyWord
   ) {
-    val interfaces = ((Advised) proxyInstance).getProxiedInterfaces();
-    String actualName = "";
-    for (Class<?> interface_ : interfaces) {
-      if (interface_.getSimpleName().contains(classNameKeyWord)) {
-        actualName = interface_.getSimpleName();
-        break;
-      }
+    val targetClass = AopUtils.getTargetClass(proxyInstance);
+    val candidates = new ArrayList<Class<?>>();
+    candidates.add(targetClass);
+    if (proxyInstance instanceof Advised) candidates.addAll(
+      Arrays.asList(((Advised) proxyInstance).getProxiedInterfaces())
+    );
+    candidates.addAll(ClassUtils.getAllInterfaces(targetClass));
+    for (Class<?> candidate : candidates) {
+      val simpleName = candidate.getSimpleName();
+      int endIndex = simpleName.indexOf(classNameKeyWord);
+      if (endIndex > 0) return simpleName.substring(0, endIndex);
     }
-    int endIndex = actualName.indexOf(classNameKeyWord);
-    return endIndex != -1 ? actualName.substring(0, endIndex) : null;
+    return null;
   }
 
   public static <V> Map<String, V> toServicesMap(
@@ -559,6 +702,35 @@ public class DatafiStaticUtils {
     return (T) result;
   }
 
+  /**
+   * @param attributePath a field name, or a dot separated path of field names - e.g. "address.city"
+   * @return the value at the given path, or null if any value along the way is null
+   */
+  public static Object getValueAtPath(Object instance, String attributePath) {
+    Object current = instance;
+    for (String attribute : attributePath.split("\\.")) {
+      if (current == null) return null;
+      current = deProxify(current);
+      current = getFieldValue(current, attribute);
+    }
+    return current;
+  }
+
+  private static Object getFieldValue(Object instance, String fieldName) {
+    for (Field field : ReflectionCache.getClassFields(instance.getClass())) {
+      if (!field.getName().equals(fieldName)) continue;
+      try {
+        field.setAccessible(true);
+        return field.get(instance);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    throw new IllegalArgumentException(
+      "No field named " + fieldName + " in " + instance.getClass().getName()
+    );
+  }
+
   public static boolean isArchivable(
     TypeElement entity,
     ProcessingEnvironment processingEnv
@@ -0,0 +1,23 @@
+package dev.sanda.datafi.annotations.finders;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables a read through cache for DataManager.findById / existsById / getOne / findByUnique
+ * of the annotated entity (or entity api spec). Intended for reference data which is read
+ * frequently and written rarely.
+ * Cached entities are detached snapshots of their basic, id, version and embedded attributes - each cache hit
+ * returns a fresh copy. Entities with associations or collections are therefore not cached, and within an
+ * active transaction the cache is bypassed in favor of the managed entity.
+ * The cache is invalidated whenever an entity of the same type is written via a DataManager.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheableEntity {
+  long maxSize() default 10000;
+
+  long ttlSeconds() default 300;
+}
@@ -0,0 +1,30 @@
+package dev.sanda.datafi.annotations.free_text_search;
+
+/**
+ * Determines which query is generated for free text search.
+ */
+public enum FreeTextSearchDialect {
+  /**
+   * Portable JPQL "lower(field) LIKE %term%" query - matches substrings, but cannot make use of indexes.
+   */
+  JPQL,
+  /**
+   * Native to_tsvector(...) @@ plainto_tsquery(...) query, ordered by ts_rank.
+   * Requires a GIN index on the same expression.
+   */
+  POSTGRESQL,
+  /**
+   * Native MATCH (...) AGAINST (... IN NATURAL LANGUAGE MODE) query, ordered by relevance.
+   * Requires a FULLTEXT index on the search columns.
+   */
+  MYSQL,
+  /**
+   * Native query against H2's built in FT_SEARCH_DATA full text search (H2 2.x), ordered by score.
+   * Requires FullText to be initialized and an index to be created for the table.
+   */
+  H2;
+
+  public boolean isNative() {
+    return this != JPQL;
+  }
+}
@@ -9,4 +9,20 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface WithFreeTextSearchByFields {
   String[] value();
+
+  /**
+   * If true, an in memory trigram index of the search fields is maintained for this entity,
+   * and DataManager.freeTextSearchBy(...) is served from it rather than by a LIKE query
+   * (which cannot make use of regular database indexes).
+   * Search terms shorter than 3 characters, and keyset paginated searches, still go to the database.
+   */
+  boolean inMemoryIndex() default false;
+
+  /**
+   * The query dialect used for free text search. Native dialects perform word (rather than substring)
+   * matching against a full text index, and order results by relevance unless a sortBy field is given.
+   * The matching index DDL is generated to META-INF/datafi/full-text-search/{dialect}/{Entity}.sql.
+   * Native dialects only support direct (non nested) search fields, and cannot be combined with inMemoryIndex.
+   */
+  FreeTextSearchDialect dialect() default FreeTextSearchDialect.JPQL;
 }
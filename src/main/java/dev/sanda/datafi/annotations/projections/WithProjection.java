@@ -0,0 +1,20 @@
+package dev.sanda.datafi.annotations.projections;
+
+import java.lang.annotation.*;
+
+/**
+ * Generates a closed interface projection of the annotated entity (or entity api spec)
+ * named {Entity}{name} - i.e @WithProjection(name = "Summary", fields = {"name", "age"}) on Person
+ * generates a PersonSummary interface with getName() and getAge() getters.
+ * Projections can be passed to DataManager.findBy / findAllBy / findByUnique / findAll(Specification),
+ * as well as to the projection variants of the generated DAO finders, in which case only the
+ * listed columns are selected.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(WithProjectionAccumulator.class)
+public @interface WithProjection {
+  String name();
+
+  String[] fields();
+}
@@ -0,0 +1,12 @@
+package dev.sanda.datafi.annotations.projections;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WithProjectionAccumulator {
+  WithProjection[] value();
+}
@@ -8,6 +8,7 @@ import dev.sanda.datafi.annotations.TransientModule;
 import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
 import dev.sanda.datafi.code_generator.query.CustomSQLQueryFactory;
 import dev.sanda.datafi.reflection.runtime_services.CollectionsTypeResolver;
+import dev.sanda.datafi.reflection.runtime_services.EntityMetadataIndex;
 import lombok.val;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -21,7 +22,6 @@ import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.tools.Diagnostic;
-import java.io.IOException;
 import java.util.*;
 
 import static dev.sanda.datafi.DatafiStaticUtils.*;
@@ -29,30 +29,109 @@ import static javax.lang.model.element.Modifier.PUBLIC;
 
 /**
  * Takes care of generating all the source files needed for a jpa data access layer.
+ * Registered with gradle as an aggregating incremental processor
+ * (see META-INF/gradle/incremental.annotation.processors), as the configuration
+ * sources it generates span all entities.
  */
-@SupportedAnnotationTypes("*")
+@SupportedAnnotationTypes(
+  {
+    "javax.persistence.Entity",
+    "javax.persistence.Table",
+    "dev.sanda.datafi.annotations.EntityApiSpec",
+    "dev.sanda.datafi.annotations.MainClass",
+    "dev.sanda.datafi.annotations.TransientModule",
+    "org.springframework.boot.autoconfigure.SpringBootApplication",
+  }
+)
+@SupportedOptions(
+  {
+    AnnotationProcessor.GENERATE_DAO_IMPLS_OPTION,
+    AnnotationProcessor.VERBOSE_OPTION,
+  }
+)
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 @AutoService(Processor.class)
 public class AnnotationProcessor extends AbstractProcessor {
 
+  /**
+   * -Adatafi.generateDaoImpls=true generates concrete dao implementations - see DaoImplFactory.
+   */
+  public static final String GENERATE_DAO_IMPLS_OPTION =
+    "datafi.generateDaoImpls";
+
+  /**
+   * -Adatafi.verbose=true echoes all generated sources to the console.
+   */
+  public static final String VERBOSE_OPTION = "datafi.verbose";
+
+  // the generated configuration sources span all entities, and can therefore only be written once
+  private boolean isGenerated = false;
+
+  private final ProcessingRoundState roundState = new ProcessingRoundState();
+
   @Override
   public boolean process(
     Set<? extends TypeElement> annotations,
     RoundEnvironment roundEnvironment
   ) {
+    roundState.begin();
+    try {
+      generate(roundEnvironment);
+    } finally {
+      roundState.end();
+    }
+    //return false - these annotations are needed for the web-service layer as well
+    return false;
+  }
+
+  private void generate(RoundEnvironment roundEnvironment) {
     if (
       !roundEnvironment
         .getElementsAnnotatedWith(TransientModule.class)
         .isEmpty()
-    ) return false;
+    ) return;
     val entitySpecs = getEntityApiSpecs(roundEnvironment, processingEnv);
-    if (entitySpecs.isEmpty()) return false;
+    if (entitySpecs.isEmpty()) return;
+    if (isGenerated) {
+      entitySpecs.forEach(
+        entityDalSpec ->
+          processingEnv
+            .getMessager()
+            .printMessage(
+              Diagnostic.Kind.WARNING,
+              entityDalSpec.getSimpleName() +
+              " was generated during a later processing round, " +
+              "no data access layer will be generated for it",
+              entityDalSpec.getElement()
+            )
+      );
+      return;
+    }
+    isGenerated = true;
+    // sorted, such that generated sources are identical across builds
+    entitySpecs.sort(
+      Comparator.comparing(
+        (EntityDalSpec spec) -> spec.getElement().getQualifiedName().toString()
+      )
+    );
     val customSqlQueriesMap = new CustomSQLQueryFactory(processingEnv)
       .constructCustomQueries(entitySpecs);
     val searchMethodsMap = new FreeTextSearchMethodsFactory(processingEnv)
       .resolveFreeTextSearchMethods(entitySpecs);
     //generate a custom jpa repository for each entity
     DaoFactory daoFactory = new DaoFactory(processingEnv);
+    daoFactory.setGenerateDaoImpls(
+      Boolean.parseBoolean(
+        processingEnv.getOptions().get(GENERATE_DAO_IMPLS_OPTION)
+      )
+    );
+    CascadeUpdaterFactory cascadeUpdaterFactory = new CascadeUpdaterFactory(
+      processingEnv
+    );
+    RelationshipSynchronizerFactory relationshipSynchronizerFactory = new RelationshipSynchronizerFactory(
+      processingEnv
+    );
+    ProjectionFactory projectionFactory = new ProjectionFactory(processingEnv);
     DataManagerFactory dataManagerFactory = new DataManagerFactory(
       processingEnv,
       DatafiStaticUtils.getBasePackage(roundEnvironment)
@@ -64,6 +143,11 @@ public class AnnotationProcessor extends AbstractProcessor {
           customSqlQueriesMap,
           searchMethodsMap
         );
+        cascadeUpdaterFactory.generateCascadeUpdater(entityDalSpec);
+        relationshipSynchronizerFactory.generateRelationshipSynchronizer(
+          entityDalSpec
+        );
+        projectionFactory.generateProjections(entityDalSpec);
         dataManagerFactory.addDataManager(entityDalSpec);
       }
     );
@@ -71,6 +155,12 @@ public class AnnotationProcessor extends AbstractProcessor {
       getModelPackageNames(entitySpecs)
     );
     dataManagerFactory.writeToFile();
+    new NativeImageConfigFactory(processingEnv)
+      .writeNativeImageConfig(
+        entitySpecs,
+        daoFactory.getDaoImpls(),
+        getBasePackage(roundEnvironment)
+      );
     /*
         create a configuration source file such that
         generated spring beans are included within
@@ -78,19 +168,21 @@ public class AnnotationProcessor extends AbstractProcessor {
         */
     setComponentScan(entitySpecs, roundEnvironment);
     setEntityFieldCollectionTypeResolversBean(entitySpecs, roundEnvironment);
+    setEntityMetadataIndexBean(entitySpecs, roundEnvironment);
     DaoAggregatorFactory.generateDaoCollectorImpl(
       getModelPackageNames(entitySpecs),
-      processingEnv
+      processingEnv,
+      originatingElementsOf(entitySpecs)
     );
-    //return false - these annotations are needed for the web-service layer as well
-    return false;
+    // all sources have been generated - render and write them
+    flushJavaFiles(processingEnv);
   }
 
   private void setEntityFieldCollectionTypeResolversBean(
     List<EntityDalSpec> entityDalSpecs,
     RoundEnvironment env
   ) {
-    Map<String, ClassName> collectionsTypes = new HashMap<>();
+    Map<String, ClassName> collectionsTypes = new TreeMap<>();
     entityDalSpecs.forEach(
       entity ->
         getFieldsOf(entity.getElement())
@@ -113,11 +205,12 @@ public class AnnotationProcessor extends AbstractProcessor {
             }
           )
     );
-    generateCollectionsTypesResolver(collectionsTypes, env);
+    generateCollectionsTypesResolver(collectionsTypes, entityDalSpecs, env);
   }
 
   private void generateCollectionsTypesResolver(
     Map<String, ClassName> collectionsTypes,
+    List<EntityDalSpec> entityDalSpecs,
     RoundEnvironment env
   ) {
     TypeName mapType = ParameterizedTypeName.get(
@@ -139,23 +232,101 @@ public class AnnotationProcessor extends AbstractProcessor {
       "return new $T(typeResolverMap)",
       CollectionsTypeResolver.class
     );
-    TypeSpec typeResolverMapFactory = TypeSpec
+    TypeSpec.Builder typeResolverMapFactory = TypeSpec
       .classBuilder("TypeResolverMapFactory")
       .addModifiers(PUBLIC)
       .addAnnotation(Configuration.class)
-      .addMethod(builder.build())
-      .build();
-    try {
-      val file = JavaFile
-        .builder(getBasePackage(env), typeResolverMapFactory)
-        .build();
-      file.writeTo(System.out);
-      file.writeTo(processingEnv.getFiler());
-    } catch (IOException e) {
+      .addMethod(builder.build());
+    for (Element originatingElement : originatingElementsOf(entityDalSpecs)) {
+      typeResolverMapFactory.addOriginatingElement(originatingElement);
+    }
+    writeToJavaFile(
+      JavaFile
+        .builder(getBasePackage(env), typeResolverMapFactory.build())
+        .build(),
       processingEnv
-        .getMessager()
-        .printMessage(Diagnostic.Kind.ERROR, e.toString());
+    );
+  }
+
+  /**
+   * Generates the EntityMetadataIndex bean used by ReflectionCache in place of classpath scanning.
+   * Skipped if any api spec isn't public (and therefore can't be referenced from the generated
+   * configuration), in which case ReflectionCache falls back to scanning.
+   */
+  private void setEntityMetadataIndexBean(
+    List<EntityDalSpec> entityDalSpecs,
+    RoundEnvironment env
+  ) {
+    val sortedSpecs = new ArrayList<EntityDalSpec>(entityDalSpecs);
+    sortedSpecs.sort(
+      Comparator.comparing(
+        (EntityDalSpec spec) -> spec.getElement().getQualifiedName().toString()
+      )
+    );
+    TypeName listType = ParameterizedTypeName.get(
+      ClassName.get(ArrayList.class),
+      ParameterizedTypeName.get(
+        ClassName.get(Class.class),
+        WildcardTypeName.subtypeOf(Object.class)
+      )
+    );
+    TypeName mapType = ParameterizedTypeName.get(
+      ClassName.get(HashMap.class),
+      ParameterizedTypeName.get(
+        ClassName.get(Class.class),
+        WildcardTypeName.subtypeOf(Object.class)
+      ),
+      ParameterizedTypeName.get(
+        ClassName.get(Class.class),
+        WildcardTypeName.subtypeOf(Object.class)
+      )
+    );
+    val builder = MethodSpec
+      .methodBuilder("entityMetadataIndex")
+      .addAnnotation(Bean.class)
+      .addModifiers(PUBLIC)
+      .returns(ClassName.get(EntityMetadataIndex.class))
+      .addStatement("$T entityTypes = new $T()", listType, listType)
+      .addStatement("$T entityApiSpecs = new $T()", mapType, mapType);
+    for (EntityDalSpec entityDalSpec : sortedSpecs) {
+      val entityType = ClassName.get(entityDalSpec.getElement());
+      builder.addStatement("entityTypes.add($T.class)", entityType);
+      val entityApiSpec = entityDalSpec.getEntityApiSpec();
+      if (entityApiSpec == null) continue;
+      if (!entityApiSpec.getModifiers().contains(PUBLIC)) {
+        processingEnv
+          .getMessager()
+          .printMessage(
+            Diagnostic.Kind.NOTE,
+            entityApiSpec.getSimpleName() +
+            " is not public, entity metadata will be resolved by classpath scanning",
+            entityApiSpec
+          );
+        return;
+      }
+      builder.addStatement(
+        "entityApiSpecs.put($T.class, $T.class)",
+        entityType,
+        ClassName.get(entityApiSpec)
+      );
     }
+    builder.addStatement(
+      "return new $T(entityTypes, entityApiSpecs)",
+      EntityMetadataIndex.class
+    );
+    TypeSpec.Builder entityMetadataIndexFactory = TypeSpec
+      .classBuilder("EntityMetadataIndexFactory")
+      .addModifiers(PUBLIC)
+      .addAnnotation(Configuration.class)
+      .addMethod(builder.build());
+    writeToJavaFile(
+      "EntityMetadataIndexFactory",
+      getBasePackage(env),
+      entityMetadataIndexFactory,
+      processingEnv,
+      "entity metadata index",
+      originatingElementsOf(entityDalSpecs)
+    );
   }
 
   private void setComponentScan(
@@ -184,7 +355,8 @@ public class AnnotationProcessor extends AbstractProcessor {
         basePackageName(entityDalSpecs, roundEnv),
         builder,
         processingEnv,
-        "configuration source file"
+        "configuration source file",
+        originatingElementsOf(entityDalSpecs)
       );
     }
   }
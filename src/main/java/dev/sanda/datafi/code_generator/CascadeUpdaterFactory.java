@@ -0,0 +1,237 @@
+package dev.sanda.datafi.code_generator;
+
+import static com.squareup.javapoet.ParameterizedTypeName.get;
+import static dev.sanda.datafi.DatafiStaticUtils.getFieldsOf;
+import static dev.sanda.datafi.DatafiStaticUtils.hasOneOfAnnotations;
+import static dev.sanda.datafi.DatafiStaticUtils.superclassOf;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import dev.sanda.datafi.DatafiStaticUtils;
+import dev.sanda.datafi.annotations.attributes.NonApiUpdatable;
+import dev.sanda.datafi.annotations.attributes.NonApiUpdatables;
+import dev.sanda.datafi.code_generator.FieldAccessorResolver.FieldAccessor;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import dev.sanda.datafi.service.CascadeUpdateContext;
+import dev.sanda.datafi.service.CascadeUpdater;
+import java.util.*;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.persistence.*;
+import javax.tools.Diagnostic;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.val;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates a CascadeUpdater implementation for each entity, such that DataManager.cascadeUpdate(...)
+ * can copy changed field values without reflection. Which fields are updated, and which of them are foreign keys,
+ * is determined here at compile time using the same rules as CachedEntityTypeInfo does at runtime.
+ * Entities with updatable fields which are neither accessible nor exposed via getters / setters are skipped,
+ * and fall back to the reflection based cascade update at runtime.
+ */
+@Data
+public class CascadeUpdaterFactory {
+
+  @NonNull
+  private ProcessingEnvironment processingEnv;
+
+  private FieldAccessorResolver fieldAccessorResolver;
+
+  protected void generateCascadeUpdater(EntityDalSpec entityDalSpec) {
+    if (fieldAccessorResolver == null) fieldAccessorResolver =
+      new FieldAccessorResolver(processingEnv);
+    val entity = entityDalSpec.getElement();
+    val entityType = ClassName.get(entity);
+    val packageName = entityType.packageName();
+    val updaterName = entityDalSpec.getSimpleName() + "CascadeUpdater";
+
+    MethodSpec.Builder cascadeUpdate = MethodSpec
+      .methodBuilder("cascadeUpdate")
+      .addAnnotation(Override.class)
+      .addModifiers(Modifier.PUBLIC)
+      .addParameter(entityType, "toUpdate")
+      .addParameter(entityType, "source")
+      .returns(boolean.class)
+      .addParameter(CascadeUpdateContext.class, "context")
+      .addStatement("boolean isDirty = false");
+    for (VariableElement field : getCascadeUpdatableFields(entity)) {
+      FieldAccessor accessor = fieldAccessorResolver.resolve(
+        field,
+        entity,
+        packageName
+      );
+      if (accessor == null) {
+        processingEnv
+          .getMessager()
+          .printMessage(
+            Diagnostic.Kind.NOTE,
+            "Field " +
+            field.getSimpleName() +
+            " is not accessible from generated code, " +
+            entityDalSpec.getSimpleName() +
+            " will be cascade updated via reflection",
+            entity
+          );
+        return;
+      }
+      addFieldUpdate(cascadeUpdate, field, accessor);
+    }
+    cascadeUpdate.addStatement("return isDirty");
+
+    TypeSpec.Builder builder = TypeSpec
+      .classBuilder(updaterName)
+      .addModifiers(Modifier.PUBLIC)
+      .addAnnotation(Component.class)
+      .addSuperinterface(get(ClassName.get(CascadeUpdater.class), entityType))
+      .addMethod(
+        MethodSpec
+          .methodBuilder("getEntityType")
+          .addAnnotation(Override.class)
+          .addModifiers(Modifier.PUBLIC)
+          .returns(get(ClassName.get(Class.class), entityType))
+          .addStatement("return $T.class", entityType)
+          .build()
+      )
+      .addMethod(cascadeUpdate.build());
+    DatafiStaticUtils.writeToJavaFile(
+      entityDalSpec.getSimpleName(),
+      packageName,
+      builder,
+      processingEnv,
+      "cascade updater",
+      DatafiStaticUtils.originatingElementsOf(entityDalSpec)
+    );
+  }
+
+  private void addFieldUpdate(
+    MethodSpec.Builder cascadeUpdate,
+    VariableElement field,
+    FieldAccessor accessor
+  ) {
+    val fieldName = field.getSimpleName().toString();
+    val sourceValue = accessor.read("source");
+    val targetValue = accessor.read("toUpdate");
+    if (field.asType().getKind().isPrimitive()) {
+      cascadeUpdate.beginControlFlow("if ($L != $L)", targetValue, sourceValue);
+      addChangedFieldWrite(cascadeUpdate, fieldName, accessor, sourceValue);
+      cascadeUpdate.endControlFlow();
+    } else if (isForeignKey(field)) {
+      val nestedType = ClassName.get(
+        (TypeElement) ((DeclaredType) field.asType()).asElement()
+      );
+      cascadeUpdate
+        .beginControlFlow("if ($L != null)", sourceValue)
+        .beginControlFlow("if ($L == null)", targetValue);
+      addChangedFieldWrite(
+        cascadeUpdate,
+        fieldName,
+        accessor,
+        CodeBlock.of("context.defaultInstanceOf($T.class)", nestedType)
+      );
+      cascadeUpdate
+        .endControlFlow()
+        .addStatement(
+          "context.cascadeUpdateNested(toUpdate, $S, $T.class, $L, $L)",
+          fieldName,
+          nestedType,
+          targetValue,
+          sourceValue
+        )
+        .endControlFlow();
+    } else if (!isForeignKeyCollection(field)) {
+      cascadeUpdate.beginControlFlow(
+        "if ($L != null && !$T.equals($L, $L))",
+        sourceValue,
+        Objects.class,
+        targetValue,
+        sourceValue
+      );
+      addChangedFieldWrite(cascadeUpdate, fieldName, accessor, sourceValue);
+      cascadeUpdate.endControlFlow();
+    }
+  }
+
+  private void addChangedFieldWrite(
+    MethodSpec.Builder cascadeUpdate,
+    String fieldName,
+    FieldAccessor accessor,
+    CodeBlock value
+  ) {
+    cascadeUpdate
+      .addStatement("$L", accessor.write("toUpdate", value))
+      .addStatement("context.fieldChanged(toUpdate, $S)", fieldName)
+      .addStatement("isDirty = true");
+  }
+
+  /**
+   * Compile time equivalent of CachedEntityTypeInfo.getCascadeUpdatableFields()
+   */
+  private List<VariableElement> getCascadeUpdatableFields(TypeElement entity) {
+    val nonApiUpdatables = entity.getAnnotation(NonApiUpdatables.class);
+    Set<String> nonApiUpdatableNames = nonApiUpdatables != null
+      ? new HashSet<>(Arrays.asList(nonApiUpdatables.value()))
+      : new HashSet<>();
+    val fieldNames = new HashSet<String>();
+    val result = new ArrayList<VariableElement>();
+    TypeElement current = entity;
+    while (current != null) {
+      for (VariableElement field : getFieldsOf(current)) {
+        val fieldName = field.getSimpleName().toString();
+        if (
+          field.getModifiers().contains(Modifier.STATIC) ||
+          !fieldNames.add(fieldName)
+        ) continue;
+        if (
+          !nonApiUpdatableNames.contains(fieldName) &&
+          !isNonApiUpdatable(field)
+        ) result.add(field);
+      }
+      current = superclassOf(current);
+    }
+    return result;
+  }
+
+  private boolean isNonApiUpdatable(VariableElement field) {
+    val typeUtils = processingEnv.getTypeUtils();
+    val fieldType = typeUtils.erasure(field.asType());
+    return (
+      hasOneOfAnnotations(
+        field,
+        NonApiUpdatable.class,
+        Id.class,
+        EmbeddedId.class,
+        ElementCollection.class,
+        CollectionTable.class
+      ) ||
+      typeUtils.isAssignable(fieldType, erasureOf(Iterable.class)) ||
+      typeUtils.isSameType(fieldType, erasureOf(Map.class))
+    );
+  }
+
+  private boolean isForeignKey(VariableElement field) {
+    return hasOneOfAnnotations(field, OneToOne.class, ManyToOne.class);
+  }
+
+  private boolean isForeignKeyCollection(VariableElement field) {
+    return hasOneOfAnnotations(field, OneToMany.class, ManyToMany.class);
+  }
+
+  private TypeMirror erasureOf(Class<?> type) {
+    return processingEnv
+      .getTypeUtils()
+      .erasure(
+        processingEnv
+          .getElementUtils()
+          .getTypeElement(type.getCanonicalName())
+          .asType()
+      );
+  }
+}
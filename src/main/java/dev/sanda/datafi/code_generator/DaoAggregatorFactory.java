@@ -7,6 +7,7 @@ import dev.sanda.datafi.persistence.GenericDao;
 import dev.sanda.datafi.service.DaoCollector;
 import java.util.List;
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import lombok.Getter;
 import lombok.val;
@@ -20,7 +21,8 @@ public class DaoAggregatorFactory {
 
   public static void generateDaoCollectorImpl(
     List<String> packageNames,
-    ProcessingEnvironment processingEnvironment
+    ProcessingEnvironment processingEnvironment,
+    Element... originatingElements
   ) {
     val componentScanBuilder = AnnotationSpec.builder(ComponentScan.class);
     val entityScanBuilder = AnnotationSpec.builder(EntityScan.class);
@@ -59,7 +61,8 @@ public class DaoAggregatorFactory {
       packageNames.get(0),
       builder,
       processingEnvironment,
-      "Dao aggregator for data manager"
+      "Dao aggregator for data manager",
+      originatingElements
     );
   }
 }
@@ -6,6 +6,7 @@ import static dev.sanda.datafi.DatafiStaticUtils.isDirectlyOrIndirectlyAnnotated
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
 import dev.sanda.datafi.DatafiStaticUtils;
 import dev.sanda.datafi.annotations.finders.FindAllBy;
 import dev.sanda.datafi.annotations.finders.FindBy;
@@ -14,9 +15,11 @@ import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
 import dev.sanda.datafi.code_generator.annotated_element_specs.FieldDalSpec;
 import dev.sanda.datafi.persistence.GenericDao;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
@@ -25,6 +28,7 @@ import javax.persistence.EmbeddedId;
 import javax.persistence.Id;
 import lombok.Data;
 import lombok.NonNull;
+import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.stereotype.Repository;
 
 @Data
@@ -33,21 +37,50 @@ public class DaoFactory {
   @NonNull
   private ProcessingEnvironment processingEnv;
 
+  /**
+   * Whether to generate concrete XxxDaoImpl classes rather than leave the daos to spring data
+   * - see DaoImplFactory.
+   */
+  private boolean generateDaoImpls;
+
+  private DaoImplFactory daoImplFactory;
+
+  /**
+   * Qualified names of the generated dao impls.
+   */
+  private final Set<String> daoImpls = new HashSet<>();
+
   protected void generateDao(
     EntityDalSpec entityDalSpec,
     Map<TypeElement, List<MethodSpec>> customSQLQueriesMap,
-    Map<TypeElement, MethodSpec> freeTextSearchMethods
+    Map<TypeElement, List<MethodSpec>> freeTextSearchMethods
   ) {
     String className = entityDalSpec.getElement().getQualifiedName().toString();
     int lastDot = className.lastIndexOf('.');
     String packageName = className.substring(0, lastDot);
     String simpleClassName = className.substring(lastDot + 1);
     String repositoryName = simpleClassName + "Dao";
+    if (daoImplFactory == null) daoImplFactory =
+      new DaoImplFactory(processingEnv);
+    final TypeSpec.Builder daoImpl = generateDaoImpls &&
+      daoImplFactory.canGenerateDaoImpl(
+        entityDalSpec,
+        customSQLQueriesMap,
+        freeTextSearchMethods
+      )
+      ? daoImplFactory.daoImplBuilder(
+        entityDalSpec,
+        ClassName.get(packageName, repositoryName)
+      )
+      : null;
 
     TypeSpec.Builder builder = TypeSpec
       .interfaceBuilder(repositoryName)
       .addModifiers(Modifier.PUBLIC)
-      .addAnnotation(Repository.class)
+      // if implemented by the generated dao impl, spring data mustn't create a repository proxy for it
+      .addAnnotation(
+        daoImpl != null ? NoRepositoryBean.class : Repository.class
+      )
       .addSuperinterface(
         get(
           ClassName.get(GenericDao.class),
@@ -61,7 +94,7 @@ public class DaoFactory {
     Collection<FieldDalSpec> annotatedFields = entityDalSpec.getFieldDalSpecs();
     if (annotatedFields != null) annotatedFields.forEach(
       annotatedField ->
-        handleAnnotatedField(entityDalSpec, builder, annotatedField)
+        handleAnnotatedField(entityDalSpec, builder, daoImpl, annotatedField)
     );
     if (
       customSQLQueriesMap.get(entityDalSpec.getElement()) != null
@@ -70,34 +103,52 @@ public class DaoFactory {
       .forEach(builder::addMethod);
     if (
       freeTextSearchMethods.get(entityDalSpec.getElement()) != null
-    ) builder.addMethod(freeTextSearchMethods.get(entityDalSpec.getElement()));
+    ) freeTextSearchMethods
+      .get(entityDalSpec.getElement())
+      .forEach(builder::addMethod);
     DatafiStaticUtils.writeToJavaFile(
       entityDalSpec.getSimpleName(),
       packageName,
       builder,
       processingEnv,
-      "JpaRepository"
+      "JpaRepository",
+      DatafiStaticUtils.originatingElementsOf(entityDalSpec)
     );
+    if (daoImpl != null) {
+      DatafiStaticUtils.writeToJavaFile(
+        entityDalSpec.getSimpleName(),
+        packageName,
+        daoImpl,
+        processingEnv,
+        "dao implementation",
+        DatafiStaticUtils.originatingElementsOf(entityDalSpec)
+      );
+      daoImpls.add(packageName + "." + repositoryName + "Impl");
+    }
   }
 
   private void handleAnnotatedField(
     EntityDalSpec entityDalSpec,
     TypeSpec.Builder builder,
+    TypeSpec.Builder daoImpl,
     FieldDalSpec fieldDalSpec
   ) {
     if (isFindBy(fieldDalSpec)) handleFindBy(
       entityDalSpec,
       builder,
+      daoImpl,
       fieldDalSpec
     );
     if (isFindAllBy(fieldDalSpec)) handleFindAllBy(
       entityDalSpec,
       builder,
+      daoImpl,
       fieldDalSpec
     );
     if (isFindByUnique(fieldDalSpec)) handleFindByUnique(
       entityDalSpec,
       builder,
+      daoImpl,
       fieldDalSpec
     );
   }
@@ -135,6 +186,7 @@ public class DaoFactory {
   private void handleFindByUnique(
     EntityDalSpec entityDalSpec,
     TypeSpec.Builder builder,
+    TypeSpec.Builder daoImpl,
     FieldDalSpec annotatedField
   ) {
     if (isFindBy(annotatedField)) {
@@ -150,27 +202,35 @@ public class DaoFactory {
         "In order to use @FindByUnique on a field, annotate the field as @Column(unique = true)"
       );
     } else {
-      builder.addMethod(
-        MethodSpec
-          .methodBuilder(
-            "findBy" +
-            DatafiStaticUtils.toPascalCase(
-              annotatedField.getSimpleName().toString()
-            )
-          )
-          .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
-          .addParameter(
-            ClassName.get(annotatedField.getElement().asType()),
+      final MethodSpec finder = MethodSpec
+        .methodBuilder(
+          "findBy" +
+          DatafiStaticUtils.toPascalCase(
             annotatedField.getSimpleName().toString()
           )
-          .returns(
-            get(
-              ClassName.get(Optional.class),
-              ClassName.get(entityDalSpec.getElement())
-            )
+        )
+        .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+        .addParameter(
+          ClassName.get(annotatedField.getElement().asType()),
+          annotatedField.getSimpleName().toString()
+        )
+        .returns(
+          get(
+            ClassName.get(Optional.class),
+            ClassName.get(entityDalSpec.getElement())
           )
-          .build()
+        )
+        .build();
+      builder.addMethod(finder);
+      if (daoImpl != null) daoImplFactory.addFindByUniqueImpl(
+        daoImpl,
+        entityDalSpec,
+        finder,
+        annotatedField.getSimpleName().toString()
       );
+      if (
+        ProjectionFactory.hasProjections(entityDalSpec)
+      ) builder.addMethod(projectionVariantOf(finder, Optional.class));
     }
   }
 
@@ -188,56 +248,96 @@ public class DaoFactory {
   private void handleFindAllBy(
     EntityDalSpec entityDalSpec,
     TypeSpec.Builder builder,
+    TypeSpec.Builder daoImpl,
     FieldDalSpec annotatedField
   ) {
-    builder.addMethod(
-      MethodSpec
-        .methodBuilder(
-          "findAllBy" +
-          DatafiStaticUtils.toPascalCase(annotatedField.getSimpleName()) +
-          "In"
-        )
-        .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
-        .addParameter(
-          get(
-            ClassName.get(List.class),
-            ClassName.get(annotatedField.getElement().asType())
-          ),
-          DatafiStaticUtils.toPlural(annotatedField.getSimpleName())
-        )
-        .returns(
-          get(
-            ClassName.get(List.class),
-            ClassName.get(entityDalSpec.getElement())
-          )
+    final MethodSpec finder = MethodSpec
+      .methodBuilder(
+        "findAllBy" +
+        DatafiStaticUtils.toPascalCase(annotatedField.getSimpleName()) +
+        "In"
+      )
+      .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+      .addParameter(
+        get(
+          ClassName.get(List.class),
+          ClassName.get(annotatedField.getElement().asType())
+        ),
+        DatafiStaticUtils.toPlural(annotatedField.getSimpleName())
+      )
+      .returns(
+        get(
+          ClassName.get(List.class),
+          ClassName.get(entityDalSpec.getElement())
         )
-        .build()
+      )
+      .build();
+    builder.addMethod(finder);
+    if (daoImpl != null) daoImplFactory.addFinderImpl(
+      daoImpl,
+      entityDalSpec,
+      finder,
+      annotatedField.getSimpleName().toString(),
+      true
+    );
+    if (ProjectionFactory.hasProjections(entityDalSpec)) builder.addMethod(
+      projectionVariantOf(finder, List.class)
     );
   }
 
   private void handleFindBy(
     EntityDalSpec entityDalSpec,
     TypeSpec.Builder builder,
+    TypeSpec.Builder daoImpl,
     FieldDalSpec annotatedField
   ) {
-    builder.addMethod(
-      MethodSpec
-        .methodBuilder(
-          "findBy" +
-          DatafiStaticUtils.toPascalCase(annotatedField.getSimpleName())
-        )
-        .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
-        .addParameter(
-          ClassName.get(annotatedField.getElement().asType()),
-          annotatedField.getSimpleName()
-        )
-        .returns(
-          get(
-            ClassName.get(List.class),
-            ClassName.get(entityDalSpec.getElement())
-          )
+    final MethodSpec finder = MethodSpec
+      .methodBuilder(
+        "findBy" +
+        DatafiStaticUtils.toPascalCase(annotatedField.getSimpleName())
+      )
+      .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+      .addParameter(
+        ClassName.get(annotatedField.getElement().asType()),
+        annotatedField.getSimpleName()
+      )
+      .returns(
+        get(
+          ClassName.get(List.class),
+          ClassName.get(entityDalSpec.getElement())
         )
-        .build()
+      )
+      .build();
+    builder.addMethod(finder);
+    if (daoImpl != null) daoImplFactory.addFinderImpl(
+      daoImpl,
+      entityDalSpec,
+      finder,
+      annotatedField.getSimpleName().toString(),
+      false
+    );
+    if (ProjectionFactory.hasProjections(entityDalSpec)) builder.addMethod(
+      projectionVariantOf(finder, List.class)
     );
   }
+
+  /**
+   * @return a dynamic projection variant of the given finder -
+   * i.e <P> List<P> findByName(String name, Class<P> projection)
+   */
+  private static MethodSpec projectionVariantOf(
+    MethodSpec finder,
+    Class<?> resultContainer
+  ) {
+    final TypeVariableName projectionType = TypeVariableName.get("P");
+    return finder
+      .toBuilder()
+      .addTypeVariable(projectionType)
+      .addParameter(
+        get(ClassName.get(Class.class), projectionType),
+        "projection"
+      )
+      .returns(get(ClassName.get(resultContainer), projectionType))
+      .build();
+  }
 }
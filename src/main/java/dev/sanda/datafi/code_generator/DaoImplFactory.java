@@ -0,0 +1,185 @@
+package dev.sanda.datafi.code_generator;
+
+import static com.squareup.javapoet.ParameterizedTypeName.get;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import dev.sanda.datafi.DatafiStaticUtils;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.persistence.EntityManager;
+import javax.tools.Diagnostic;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.val;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Generates a concrete XxxDaoImpl for each XxxDao, extending SimpleJpaRepository and implementing
+ * the generated finders with ready built JPQL run directly against the EntityManager - such that
+ * spring data neither derives queries from finder names at startup, nor routes each call through
+ * its repository proxy. Enabled via the datafi.generateDaoImpls annotation processor option.
+ * Only applies to daos consisting of generated finders alone; daos with custom queries, free text
+ * search or projections are left to spring data.
+ */
+@Data
+public class DaoImplFactory {
+
+  @NonNull
+  private ProcessingEnvironment processingEnv;
+
+  protected boolean canGenerateDaoImpl(
+    EntityDalSpec entityDalSpec,
+    Map<TypeElement, List<MethodSpec>> customSQLQueriesMap,
+    Map<TypeElement, List<MethodSpec>> freeTextSearchMethods
+  ) {
+    val entity = entityDalSpec.getElement();
+    final boolean canGenerate =
+      isEmpty(customSQLQueriesMap.get(entity)) &&
+      isEmpty(freeTextSearchMethods.get(entity)) &&
+      !ProjectionFactory.hasProjections(entityDalSpec);
+    if (!canGenerate) processingEnv
+      .getMessager()
+      .printMessage(
+        Diagnostic.Kind.NOTE,
+        entityDalSpec.getSimpleName() +
+        "Dao declares custom queries, free text search or projections, " +
+        "and will therefore be implemented by spring data",
+        entity
+      );
+    return canGenerate;
+  }
+
+  protected TypeSpec.Builder daoImplBuilder(
+    EntityDalSpec entityDalSpec,
+    ClassName daoType
+  ) {
+    val entityType = ClassName.get(entityDalSpec.getElement());
+    val idType = DatafiStaticUtils.getIdType(
+      entityDalSpec.getElement(),
+      processingEnv
+    );
+    return TypeSpec
+      .classBuilder(daoType.simpleName() + "Impl")
+      .addModifiers(Modifier.PUBLIC)
+      .addAnnotation(Repository.class)
+      .superclass(
+        get(ClassName.get(SimpleJpaRepository.class), entityType, idType)
+      )
+      .addSuperinterface(daoType)
+      .addField(
+        EntityManager.class,
+        "entityManager",
+        Modifier.PRIVATE,
+        Modifier.FINAL
+      )
+      .addMethod(
+        MethodSpec
+          .constructorBuilder()
+          .addModifiers(Modifier.PUBLIC)
+          .addParameter(EntityManager.class, "entityManager")
+          .addStatement("super($T.class, entityManager)", entityType)
+          .addStatement("this.entityManager = entityManager")
+          .build()
+      );
+  }
+
+  /**
+   * Implements findByX (isIn = false) or findAllByXIn (isIn = true).
+   */
+  protected void addFinderImpl(
+    TypeSpec.Builder daoImpl,
+    EntityDalSpec entityDalSpec,
+    MethodSpec finder,
+    String fieldName,
+    boolean isIn
+  ) {
+    val entityType = ClassName.get(entityDalSpec.getElement());
+    val paramName = finder.parameters.get(0).name;
+    val jpql = selectWhere(entityDalSpec, fieldName, isIn, paramName);
+    val method = MethodSpec
+      .methodBuilder(finder.name)
+      .addAnnotation(Override.class)
+      .addModifiers(Modifier.PUBLIC)
+      .addParameters(finder.parameters)
+      .returns(finder.returnType)
+      .addCode(
+        "$[return entityManager\n.createQuery($S, $T.class)" +
+        "\n.setParameter($S, $L)\n.getResultList();\n$]",
+        jpql,
+        entityType,
+        paramName,
+        paramName
+      );
+    daoImpl.addMethod(method.build());
+  }
+
+  protected void addFindByUniqueImpl(
+    TypeSpec.Builder daoImpl,
+    EntityDalSpec entityDalSpec,
+    MethodSpec finder,
+    String fieldName
+  ) {
+    val entityType = ClassName.get(entityDalSpec.getElement());
+    val paramName = finder.parameters.get(0).name;
+    daoImpl.addMethod(
+      MethodSpec
+        .methodBuilder(finder.name)
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .addParameters(finder.parameters)
+        .returns(finder.returnType)
+        .addCode(
+          "$[final $T<$T> result = entityManager\n.createQuery($S, $T.class)" +
+          "\n.setParameter($S, $L)\n.setMaxResults(1)\n.getResultList();\n$]",
+          List.class,
+          entityType,
+          selectWhere(entityDalSpec, fieldName, false, paramName),
+          entityType,
+          paramName,
+          paramName
+        )
+        .addStatement(
+          "return result.isEmpty() ? $T.empty() : $T.of(result.get(0))",
+          Optional.class,
+          Optional.class
+        )
+        .build()
+    );
+  }
+
+  private static String selectWhere(
+    EntityDalSpec entityDalSpec,
+    String fieldName,
+    boolean isIn,
+    String paramName
+  ) {
+    val entityName = entityDalSpec.getSimpleName();
+    val placeHolder = DatafiStaticUtils.firstLowerCaseLetterOf(entityName);
+    return (
+      "SELECT " +
+      placeHolder +
+      " FROM " +
+      entityName +
+      " " +
+      placeHolder +
+      " WHERE " +
+      placeHolder +
+      "." +
+      fieldName +
+      (isIn ? " IN :" : " = :") +
+      paramName
+    );
+  }
+
+  private static boolean isEmpty(List<?> list) {
+    return list == null || list.isEmpty();
+  }
+}
@@ -30,11 +30,13 @@ public class DataManagerFactory {
   private String basePackage;
 
   private TypeSpec.Builder dataManagersConfig = initDataManagerConfig();
+  private final List<EntityDalSpec> entityDalSpecs = new ArrayList<>();
   private static final ClassName dataManagerType = ClassName.get(
     DataManager.class
   );
 
   public void addDataManager(EntityDalSpec entityDalSpec) {
+    entityDalSpecs.add(entityDalSpec);
     final ClassName entityType = ClassName.get(entityDalSpec.getElement());
     MethodSpec.Builder builder = MethodSpec
       .methodBuilder(
@@ -95,7 +97,8 @@ public class DataManagerFactory {
       basePackage,
       dataManagersConfig,
       processingEnv,
-      "Data manager beans"
+      "Data manager beans",
+      DatafiStaticUtils.originatingElementsOf(entityDalSpecs)
     );
   }
 }
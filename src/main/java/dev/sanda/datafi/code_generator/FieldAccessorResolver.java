@@ -0,0 +1,235 @@
+package dev.sanda.datafi.code_generator;
+
+import static dev.sanda.datafi.DatafiStaticUtils.toPascalCase;
+
+import com.squareup.javapoet.CodeBlock;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Determines how generated source code can read and write a given entity field -
+ * either directly (public fields, or non private fields within the same package as the generated class),
+ * or via a getter / setter which is either explicitly declared, or generated by lombok.
+ */
+@RequiredArgsConstructor
+public class FieldAccessorResolver {
+
+  @NonNull
+  private final ProcessingEnvironment processingEnv;
+
+  /**
+   * @return the resolved accessor, or null if the field cannot be both read and written from the given package.
+   */
+  public FieldAccessor resolve(
+    VariableElement field,
+    TypeElement entity,
+    String accessingPackage
+  ) {
+    val modifiers = field.getModifiers();
+    val fieldName = field.getSimpleName().toString();
+    boolean isDirectlyAccessible =
+      modifiers.contains(Modifier.PUBLIC) ||
+      (
+        !modifiers.contains(Modifier.PRIVATE) &&
+        packageOf(field).equals(accessingPackage)
+      );
+    boolean isFinal = modifiers.contains(Modifier.FINAL);
+    String getterName = isDirectlyAccessible
+      ? null
+      : resolveGetterName(field, entity, accessingPackage);
+    String setterName = isDirectlyAccessible && !isFinal
+      ? null
+      : resolveSetterName(field, entity, accessingPackage);
+    boolean isReadable = isDirectlyAccessible || getterName != null;
+    boolean isWritable =
+      (isDirectlyAccessible && !isFinal) || setterName != null;
+    if (!isReadable || !isWritable) return null;
+    return new FieldAccessor(fieldName, getterName, setterName);
+  }
+
+  private String resolveGetterName(
+    VariableElement field,
+    TypeElement entity,
+    String accessingPackage
+  ) {
+    val fieldName = field.getSimpleName().toString();
+    val isPrimitiveBoolean = field.asType().getKind() == TypeKind.BOOLEAN;
+    String lombokGetterName = !isPrimitiveBoolean
+      ? "get" + toPascalCase(fieldName)
+      : hasBooleanPrefix(fieldName) ? fieldName : "is" + toPascalCase(fieldName);
+    if (
+      hasLombokAccessor(field, "lombok.Getter", accessingPackage)
+    ) return lombokGetterName;
+    for (String candidate : new String[] {
+      "get" + toPascalCase(fieldName),
+      "is" + toPascalCase(fieldName),
+      lombokGetterName,
+    }) {
+      if (
+        hasAccessibleMethod(entity, candidate, 0, accessingPackage)
+      ) return candidate;
+    }
+    return null;
+  }
+
+  private String resolveSetterName(
+    VariableElement field,
+    TypeElement entity,
+    String accessingPackage
+  ) {
+    val fieldName = field.getSimpleName().toString();
+    val isPrimitiveBoolean = field.asType().getKind() == TypeKind.BOOLEAN;
+    String lombokSetterName = isPrimitiveBoolean && hasBooleanPrefix(fieldName)
+      ? "set" + fieldName.substring(2)
+      : "set" + toPascalCase(fieldName);
+    if (
+      !field.getModifiers().contains(Modifier.FINAL) &&
+      hasLombokAccessor(field, "lombok.Setter", accessingPackage)
+    ) return lombokSetterName;
+    for (String candidate : new String[] {
+      "set" + toPascalCase(fieldName),
+      lombokSetterName,
+    }) {
+      if (
+        hasAccessibleMethod(entity, candidate, 1, accessingPackage)
+      ) return candidate;
+    }
+    return null;
+  }
+
+  private static boolean hasBooleanPrefix(String fieldName) {
+    return (
+      fieldName.length() > 2 &&
+      fieldName.startsWith("is") &&
+      Character.isUpperCase(fieldName.charAt(2))
+    );
+  }
+
+  private boolean hasAccessibleMethod(
+    TypeElement entity,
+    String name,
+    int parameterCount,
+    String accessingPackage
+  ) {
+    val members = processingEnv.getElementUtils().getAllMembers(entity);
+    for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+      if (
+        method.getSimpleName().contentEquals(name) &&
+        method.getParameters().size() == parameterCount &&
+        isAccessible(method.getModifiers(), packageOf(method), accessingPackage)
+      ) return true;
+    }
+    return false;
+  }
+
+  private boolean hasLombokAccessor(
+    VariableElement field,
+    String accessorAnnotation,
+    String accessingPackage
+  ) {
+    val fieldLevel = lombokAnnotation(field, accessorAnnotation);
+    if (fieldLevel != null) return isAccessibleLevel(
+      fieldLevel,
+      packageOf(field),
+      accessingPackage
+    );
+    val declaringType = field.getEnclosingElement();
+    val typeLevel = lombokAnnotation(declaringType, accessorAnnotation);
+    if (typeLevel != null) return isAccessibleLevel(
+      typeLevel,
+      packageOf(field),
+      accessingPackage
+    );
+    if (lombokAnnotation(declaringType, "lombok.Data") != null) return true;
+    return (
+      accessorAnnotation.equals("lombok.Getter") &&
+      lombokAnnotation(declaringType, "lombok.Value") != null
+    );
+  }
+
+  private static AnnotationMirror lombokAnnotation(
+    Element element,
+    String annotationName
+  ) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (
+        mirror.getAnnotationType().toString().equals(annotationName)
+      ) return mirror;
+    }
+    return null;
+  }
+
+  private static boolean isAccessibleLevel(
+    AnnotationMirror lombokAnnotation,
+    String declaringPackage,
+    String accessingPackage
+  ) {
+    String accessLevel = "PUBLIC";
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : lombokAnnotation
+      .getElementValues()
+      .entrySet()) {
+      if (
+        entry.getKey().getSimpleName().contentEquals("value")
+      ) accessLevel = entry.getValue().getValue().toString();
+    }
+    switch (accessLevel) {
+      case "PUBLIC":
+        return true;
+      case "PROTECTED":
+      case "PACKAGE":
+      case "MODULE":
+        return declaringPackage.equals(accessingPackage);
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isAccessible(
+    Set<Modifier> modifiers,
+    String declaringPackage,
+    String accessingPackage
+  ) {
+    return (
+      modifiers.contains(Modifier.PUBLIC) ||
+      (
+        !modifiers.contains(Modifier.PRIVATE) &&
+        declaringPackage.equals(accessingPackage)
+      )
+    );
+  }
+
+  private String packageOf(Element element) {
+    return processingEnv
+      .getElementUtils()
+      .getPackageOf(element)
+      .getQualifiedName()
+      .toString();
+  }
+
+  @lombok.Value
+  public static class FieldAccessor {
+
+    String fieldName;
+    String getterName;
+    String setterName;
+
+    public CodeBlock read(String instance) {
+      return getterName == null
+        ? CodeBlock.of("$L.$L", instance, fieldName)
+        : CodeBlock.of("$L.$L()", instance, getterName);
+    }
+
+    public CodeBlock write(String instance, CodeBlock value) {
+      return setterName == null
+        ? CodeBlock.of("$L.$L = $L", instance, fieldName, value)
+        : CodeBlock.of("$L.$L($L)", instance, setterName, value);
+    }
+  }
+}
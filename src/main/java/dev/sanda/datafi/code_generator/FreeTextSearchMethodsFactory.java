@@ -1,27 +1,40 @@
 package dev.sanda.datafi.code_generator;
 
 import static com.squareup.javapoet.ParameterizedTypeName.get;
+import static dev.sanda.datafi.DatafiStaticUtils.getFieldsOf;
 import static dev.sanda.datafi.DatafiStaticUtils.isArchivable;
+import static dev.sanda.datafi.DatafiStaticUtils.logCompilationError;
+import static dev.sanda.datafi.DatafiStaticUtils.superclassOf;
 
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
 import dev.sanda.datafi.DatafiStaticUtils;
+import dev.sanda.datafi.annotations.free_text_search.FreeTextSearchDialect;
 import dev.sanda.datafi.annotations.free_text_search.WithFreeTextSearchByFields;
 import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import dev.sanda.datafi.service.FreeTextSearchPredicate;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 import java.util.stream.Collectors;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeMirror;
+import javax.persistence.Id;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
 import lombok.Data;
 import lombok.NonNull;
 import lombok.val;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -33,10 +46,19 @@ public class FreeTextSearchMethodsFactory {
 
   private Map<TypeMirror, TypeElement> typeMirrorTypeElementMap;
 
-  protected Map<TypeElement, MethodSpec> resolveFreeTextSearchMethods(
+  /**
+   * For each entity with free text search fields, generates:
+   * - freeTextSearch(searchTerm, paginator) - returning a Page, i.e including a total count.
+   * - freeTextSearchSlice(searchTerm, paginator) - returning a Slice, i.e without running a count query.
+   * - freeTextSearchCount(searchTerm) - the count query on its own.
+   * For native dialects, the above are ordered by relevance, and are accompanied by
+   * freeTextSearchSorted(searchTerm, paginator) and freeTextSearchSortedSlice(searchTerm, paginator),
+   * which are ordered by the paginator's sort instead.
+   */
+  protected Map<TypeElement, List<MethodSpec>> resolveFreeTextSearchMethods(
     List<EntityDalSpec> entityDalSpecs
   ) {
-    Map<TypeElement, MethodSpec> result = new HashMap<>();
+    Map<TypeElement, List<MethodSpec>> result = new HashMap<>();
     typeMirrorTypeElementMap =
       entityDalSpecs
         .stream()
@@ -51,19 +73,41 @@ public class FreeTextSearchMethodsFactory {
       .collect(Collectors.toSet())
       .forEach(
         entityDavSpecWithFreeTextSearchFields -> {
-          val searchFieldNames = Arrays.asList(
-            entityDavSpecWithFreeTextSearchFields
-              .getAnnotation(WithFreeTextSearchByFields.class)
-              .value()
-          );
-          if (!searchFieldNames.isEmpty()) {
-            MethodSpec freeTextSearchMethod = generateFreeTextSearchMethod(
+          val freeTextSearchByFields = entityDavSpecWithFreeTextSearchFields
+            .getAnnotation(WithFreeTextSearchByFields.class);
+          val searchFieldNames = Arrays.asList(freeTextSearchByFields.value());
+          if (searchFieldNames.isEmpty()) return;
+          if (freeTextSearchByFields.dialect().isNative()) {
+            val nativeMethods = generateNativeFreeTextSearchMethods(
               entityDavSpecWithFreeTextSearchFields,
-              searchFieldNames
+              searchFieldNames,
+              freeTextSearchByFields
             );
+            if (nativeMethods != null) result.put(
+              entityDavSpecWithFreeTextSearchFields.getElement(),
+              nativeMethods
+            );
+          } else {
             result.put(
               entityDavSpecWithFreeTextSearchFields.getElement(),
-              freeTextSearchMethod
+              Arrays.asList(
+                generateFreeTextSearchMethod(
+                  entityDavSpecWithFreeTextSearchFields,
+                  searchFieldNames,
+                  "freeTextSearch",
+                  Page.class
+                ),
+                generateFreeTextSearchMethod(
+                  entityDavSpecWithFreeTextSearchFields,
+                  searchFieldNames,
+                  "freeTextSearchSlice",
+                  Slice.class
+                ),
+                generateFreeTextSearchCountMethod(
+                  entityDavSpecWithFreeTextSearchFields,
+                  searchFieldNames
+                )
+              )
             );
           }
         }
@@ -71,21 +115,209 @@ public class FreeTextSearchMethodsFactory {
     return result;
   }
 
-  private MethodSpec generateFreeTextSearchMethod(
+  private List<MethodSpec> generateNativeFreeTextSearchMethods(
     EntityDalSpec entityDalSpec,
-    List<String> searchFieldNames
+    List<String> searchFieldNames,
+    WithFreeTextSearchByFields freeTextSearchByFields
   ) {
-    String entityName = entityDalSpec.getSimpleName();
-    String methodName = "freeTextSearch";
-    ParameterSpec argument = ParameterSpec
-      .builder(String.class, "searchTerm")
-      .addAnnotation(
-        AnnotationSpec
-          .builder(Param.class)
-          .addMember("value", "$S", "searchTerm")
-          .build()
+    val entity = entityDalSpec.getElement();
+    val dialect = freeTextSearchByFields.dialect();
+    if (freeTextSearchByFields.inMemoryIndex()) {
+      logCompilationError(
+        processingEnv,
+        entity,
+        "inMemoryIndex cannot be combined with the native " +
+        dialect +
+        " free text search dialect"
+      );
+      return null;
+    }
+    val searchColumns = new ArrayList<String>();
+    for (String fieldName : searchFieldNames) {
+      val field = fieldOf(entity, fieldName);
+      if (field == null) {
+        logCompilationError(
+          processingEnv,
+          entity,
+          "Native free text search requires direct search fields of the entity itself, " +
+          "no such field: " +
+          fieldName
+        );
+        return null;
+      }
+      searchColumns.add(NativeFreeTextSearchQueries.columnNameOf(field));
+    }
+    val idField = idFieldOf(entity);
+    if (idField == null && dialect == FreeTextSearchDialect.H2) {
+      logCompilationError(
+        processingEnv,
+        entity,
+        "H2 native free text search requires a single column @Id"
+      );
+      return null;
+    }
+    String isArchivedColumn = null;
+    if (isArchivable(entity, processingEnv)) {
+      val isArchivedField = fieldOf(entity, "isArchived");
+      isArchivedColumn =
+        isArchivedField != null
+          ? NativeFreeTextSearchQueries.columnNameOf(isArchivedField)
+          : "is_archived";
+    }
+    val queries = new NativeFreeTextSearchQueries(
+      dialect,
+      NativeFreeTextSearchQueries.tableNameOf(entity),
+      idField != null
+        ? NativeFreeTextSearchQueries.columnNameOf(idField)
+        : null,
+      searchColumns,
+      isArchivedColumn
+    );
+    writeIndexDdl(entityDalSpec, dialect, queries.getIndexDdl());
+    return Arrays.asList(
+      generateNativeFreeTextSearchMethod(
+        entityDalSpec,
+        "freeTextSearch",
+        Page.class,
+        queries.getSelectQuery(),
+        queries.getCountQuery()
+      ),
+      generateNativeFreeTextSearchMethod(
+        entityDalSpec,
+        "freeTextSearchSlice",
+        Slice.class,
+        queries.getSelectQuery(),
+        null
+      ),
+      generateNativeFreeTextSearchMethod(
+        entityDalSpec,
+        "freeTextSearchSorted",
+        Page.class,
+        queries.getSortableSelectQuery(),
+        queries.getCountQuery()
+      ),
+      generateNativeFreeTextSearchMethod(
+        entityDalSpec,
+        "freeTextSearchSortedSlice",
+        Slice.class,
+        queries.getSortableSelectQuery(),
+        null
+      ),
+      MethodSpec
+        .methodBuilder("freeTextSearchCount")
+        .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+        .addParameter(searchTermParameter())
+        .addAnnotation(
+          AnnotationSpec
+            .builder(Query.class)
+            .addMember("value", "$S", queries.getCountQuery())
+            .addMember("nativeQuery", "true")
+            .build()
+        )
+        .returns(long.class)
+        .build()
+    );
+  }
+
+  private MethodSpec generateNativeFreeTextSearchMethod(
+    EntityDalSpec entityDalSpec,
+    String methodName,
+    Class<?> returnType,
+    String query,
+    String countQuery
+  ) {
+    val queryAnnotation = AnnotationSpec
+      .builder(Query.class)
+      .addMember("value", "$S", query)
+      .addMember("nativeQuery", "true");
+    if (countQuery != null) queryAnnotation.addMember(
+      "countQuery",
+      "$S",
+      countQuery
+    );
+    return MethodSpec
+      .methodBuilder(methodName)
+      .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+      .addParameter(searchTermParameter())
+      .addParameter(Pageable.class, "paginator")
+      .addAnnotation(queryAnnotation.build())
+      .returns(
+        get(
+          ClassName.get(returnType),
+          ClassName.get(entityDalSpec.getElement())
+        )
       )
       .build();
+  }
+
+  /**
+   * Writes the DDL of the full text index which the native queries rely on to
+   * META-INF/datafi/full-text-search/{dialect}/{Entity}.sql, such that it can be
+   * included in schema migrations, or executed on startup via datafi.full-text-search.create-indexes=true.
+   */
+  private void writeIndexDdl(
+    EntityDalSpec entityDalSpec,
+    FreeTextSearchDialect dialect,
+    String indexDdl
+  ) {
+    try {
+      FileObject ddlFile = processingEnv
+        .getFiler()
+        .createResource(
+          StandardLocation.CLASS_OUTPUT,
+          "",
+          "META-INF/datafi/full-text-search/" +
+          dialect.name().toLowerCase() +
+          "/" +
+          entityDalSpec.getSimpleName() +
+          ".sql",
+          entityDalSpec.getElement()
+        );
+      try (Writer writer = ddlFile.openWriter()) {
+        writer.write(indexDdl);
+        writer.write("\n");
+      }
+    } catch (IOException e) {
+      processingEnv
+        .getMessager()
+        .printMessage(Diagnostic.Kind.ERROR, e.toString());
+    }
+  }
+
+  static VariableElement fieldOf(TypeElement entity, String name) {
+    for (
+      TypeElement current = entity;
+      current != null;
+      current = superclassOf(current)
+    ) {
+      for (VariableElement field : getFieldsOf(current)) if (
+        field.getSimpleName().contentEquals(name)
+      ) return field;
+    }
+    return null;
+  }
+
+  private static VariableElement idFieldOf(TypeElement entity) {
+    for (
+      TypeElement current = entity;
+      current != null;
+      current = superclassOf(current)
+    ) {
+      for (VariableElement field : getFieldsOf(current)) if (
+        field.getAnnotation(Id.class) != null
+      ) return field;
+    }
+    return null;
+  }
+
+  private MethodSpec generateFreeTextSearchMethod(
+    EntityDalSpec entityDalSpec,
+    List<String> searchFieldNames,
+    String methodName,
+    Class<?> returnType
+  ) {
+    String entityName = entityDalSpec.getSimpleName();
+    ParameterSpec argument = searchTermParameter();
     String freeTextSearchQuery = freeTextSearchQuery(
       entityName,
       searchFieldNames,
@@ -105,13 +337,53 @@ public class FreeTextSearchMethodsFactory {
       )
       .returns(
         get(
-          ClassName.get(Page.class),
+          ClassName.get(returnType),
           ClassName.get(entityDalSpec.getElement())
         )
       )
       .build();
   }
 
+  private MethodSpec generateFreeTextSearchCountMethod(
+    EntityDalSpec entityDalSpec,
+    List<String> searchFieldNames
+  ) {
+    String freeTextSearchCountQuery = freeTextSearchQuery(
+      entityDalSpec.getSimpleName(),
+      searchFieldNames,
+      isArchivable(entityDalSpec.getElement(), processingEnv),
+      true
+    );
+    return MethodSpec
+      .methodBuilder("freeTextSearchCount")
+      .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+      .addParameter(searchTermParameter())
+      .addAnnotation(
+        AnnotationSpec
+          .builder(Query.class)
+          .addMember("value", "$S", freeTextSearchCountQuery)
+          .build()
+      )
+      .returns(long.class)
+      .build();
+  }
+
+  private static ParameterSpec searchTermParameter() {
+    return ParameterSpec
+      .builder(String.class, "searchTerm")
+      .addAnnotation(
+        AnnotationSpec
+          .builder(Param.class)
+          .addMember(
+            "value",
+            "$S",
+            FreeTextSearchPredicate.SEARCH_TERM_PARAMETER
+          )
+          .build()
+      )
+      .build();
+  }
+
   public static String freeTextSearchQuery(
     String entityName,
     List<String> searchFieldNames,
@@ -127,25 +399,14 @@ public class FreeTextSearchMethodsFactory {
       " " +
       placeHolder
       : "SELECT " + placeHolder + " FROM " + entityName + " " + placeHolder;
-    StringBuilder result = new StringBuilder(selectionPrefix);
-    boolean isFirst = true;
-    for (String fieldName : searchFieldNames) {
-      final String conditionPrefix = isFirst ? " WHERE" : " OR";
-      isFirst = false;
-      val condition =
-        " lower(" +
-        placeHolder +
-        "." +
-        fieldName +
-        ") " +
-        "LIKE lower(concat('%', :searchTerm, '%'))";
-      result.append(conditionPrefix);
-      result.append(condition);
-    }
-    if (isArchivable) result
-      .append(" AND ")
-      .append(placeHolder)
-      .append(".isArchived = false");
-    return result.toString();
+    return (
+      selectionPrefix +
+      " WHERE " +
+      FreeTextSearchPredicate.toJpql(
+        placeHolder,
+        searchFieldNames,
+        isArchivable
+      )
+    );
   }
 }
@@ -0,0 +1,165 @@
+package dev.sanda.datafi.code_generator;
+
+import dev.sanda.datafi.annotations.free_text_search.FreeTextSearchDialect;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import lombok.Getter;
+
+/**
+ * The native full text search queries of a single entity, along with the DDL of the index they rely on.
+ * Table and column names are resolved the same way as by spring boot's default physical naming strategy,
+ * i.e @Table / @Column names if specified, snake_cased names otherwise.
+ */
+@Getter
+class NativeFreeTextSearchQueries {
+
+  /**
+   * ordered by relevance
+   */
+  private final String selectQuery;
+
+  /**
+   * without an order by clause, such that a sort can be appended
+   */
+  private final String sortableSelectQuery;
+
+  private final String countQuery;
+  private final String indexDdl;
+
+  NativeFreeTextSearchQueries(
+    FreeTextSearchDialect dialect,
+    String table,
+    String idColumn,
+    List<String> searchColumns,
+    String isArchivedColumn
+  ) {
+    final String archivedCondition = isArchivedColumn != null
+      ? " AND " + table + "." + isArchivedColumn + " = false"
+      : "";
+    final String columns = String.join(", ", searchColumns);
+    switch (dialect) {
+      case POSTGRESQL:
+        final String document =
+          "to_tsvector('simple', " +
+          searchColumns
+            .stream()
+            .map(column -> "coalesce(" + column + ", '')")
+            .collect(Collectors.joining(" || ' ' || ")) +
+          ")";
+        final String query = "plainto_tsquery('simple', :searchTerm)";
+        final String postgresMatch =
+          " FROM " +
+          table +
+          " WHERE " +
+          document +
+          " @@ " +
+          query +
+          archivedCondition;
+        sortableSelectQuery = "SELECT *" + postgresMatch;
+        selectQuery =
+          sortableSelectQuery +
+          " ORDER BY ts_rank(" +
+          document +
+          ", " +
+          query +
+          ") DESC";
+        countQuery = "SELECT count(*)" + postgresMatch;
+        indexDdl =
+          "CREATE INDEX IF NOT EXISTS " +
+          table +
+          "_fts_idx ON " +
+          table +
+          " USING GIN (" +
+          document +
+          ");";
+        break;
+      case MYSQL:
+        final String match =
+          "MATCH (" +
+          columns +
+          ") AGAINST (:searchTerm IN NATURAL LANGUAGE MODE)";
+        final String mysqlMatch =
+          " FROM " + table + " WHERE " + match + archivedCondition;
+        sortableSelectQuery = "SELECT *" + mysqlMatch;
+        selectQuery = sortableSelectQuery + " ORDER BY " + match + " DESC";
+        countQuery = "SELECT count(*)" + mysqlMatch;
+        indexDdl =
+          "ALTER TABLE " +
+          table +
+          " ADD FULLTEXT INDEX " +
+          table +
+          "_fts_idx (" +
+          columns +
+          ");";
+        break;
+      case H2:
+        final String h2Match =
+          " FROM FT_SEARCH_DATA(:searchTerm, 0, 0) ft JOIN " +
+          table +
+          " ON ft.\"TABLE\" = '" +
+          table.toUpperCase() +
+          "' AND " +
+          table +
+          "." +
+          idColumn +
+          " = ft.KEYS[1]" +
+          archivedCondition;
+        sortableSelectQuery = "SELECT " + table + ".*" + h2Match;
+        selectQuery = sortableSelectQuery + " ORDER BY ft.SCORE DESC";
+        countQuery = "SELECT count(*)" + h2Match;
+        indexDdl =
+          "CREATE ALIAS IF NOT EXISTS FT_INIT FOR \"org.h2.fulltext.FullText.init\";\n" +
+          "CALL FT_INIT();\n" +
+          "CALL FT_CREATE_INDEX('PUBLIC', '" +
+          table.toUpperCase() +
+          "', '" +
+          searchColumns
+            .stream()
+            .map(String::toUpperCase)
+            .collect(Collectors.joining(",")) +
+          "');";
+        break;
+      default:
+        throw new IllegalArgumentException(
+          dialect + " is not a native free text search dialect"
+        );
+    }
+  }
+
+  static String tableNameOf(TypeElement entity) {
+    final Table table = entity.getAnnotation(Table.class);
+    if (table != null && !table.name().isEmpty()) return table.name();
+    final Entity entityAnnotation = entity.getAnnotation(Entity.class);
+    if (
+      entityAnnotation != null && !entityAnnotation.name().isEmpty()
+    ) return toSnakeCase(entityAnnotation.name());
+    return toSnakeCase(entity.getSimpleName().toString());
+  }
+
+  static String columnNameOf(VariableElement field) {
+    final Column column = field.getAnnotation(Column.class);
+    if (column != null && !column.name().isEmpty()) return column.name();
+    return toSnakeCase(field.getSimpleName().toString());
+  }
+
+  /**
+   * Same rules as SpringPhysicalNamingStrategy - an underscore is inserted before each
+   * upper case character which is preceded and followed by a lower case one.
+   */
+  static String toSnakeCase(String name) {
+    final StringBuilder result = new StringBuilder(name.replace('.', '_'));
+    for (int i = 1; i < result.length() - 1; i++) {
+      if (
+        Character.isLowerCase(result.charAt(i - 1)) &&
+        Character.isUpperCase(result.charAt(i)) &&
+        Character.isLowerCase(result.charAt(i + 1))
+      ) result.insert(i++, '_');
+    }
+    return result.toString().toLowerCase();
+  }
+}
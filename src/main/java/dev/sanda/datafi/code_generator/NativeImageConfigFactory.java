@@ -0,0 +1,230 @@
+package dev.sanda.datafi.code_generator;
+
+import static dev.sanda.datafi.DatafiStaticUtils.getFieldsOf;
+import static dev.sanda.datafi.DatafiStaticUtils.superclassOf;
+import static dev.sanda.datafi.DatafiStaticUtils.toPascalCase;
+
+import dev.sanda.datafi.annotations.projections.WithProjection;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.persistence.Embeddable;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.val;
+
+/**
+ * Generates GraalVM native-image configuration under META-INF/native-image/{base package}/datafi,
+ * covering the reflection datafi performs at runtime:
+ * <ul>
+ *   <li>reflect-config.json - entities (including their mapped superclasses and embeddables) and api specs, whose fields,
+ *   constructors and accessors are accessed reflectively by ReflectionCache, CachedEntityTypeInfo and
+ *   EntityRelationshipSyncronizer, and the daos, whose methods DataManager resolves by name.</li>
+ *   <li>proxy-config.json - the jdk proxies spring data creates for the daos and projections.</li>
+ *   <li>resource-config.json - the generated full text search index scripts.</li>
+ * </ul>
+ * Query scripts (@WithQueryScripts) are read at compile time, and are therefore not included.
+ */
+@Data
+public class NativeImageConfigFactory {
+
+  private static final List<String> repositoryProxyInterfaces = Arrays.asList(
+    "org.springframework.data.repository.Repository",
+    "org.springframework.transaction.interceptor.TransactionalProxy",
+    "org.springframework.aop.framework.Advised",
+    "org.springframework.core.DecoratingProxy"
+  );
+
+  private static final List<String> projectionProxyInterfaces = Arrays.asList(
+    "org.springframework.data.projection.TargetAware",
+    "org.springframework.aop.SpringProxy",
+    "org.springframework.core.DecoratingProxy"
+  );
+
+  @NonNull
+  private ProcessingEnvironment processingEnv;
+
+  public void writeNativeImageConfig(
+    List<EntityDalSpec> entityDalSpecs,
+    Set<String> daoImpls,
+    String basePackage
+  ) {
+    val reflectedTypes = new TreeMap<String, Boolean>();
+    val proxies = new TreeMap<String, List<String>>();
+    for (EntityDalSpec entityDalSpec : entityDalSpecs) {
+      val entity = entityDalSpec.getElement();
+      addWithSuperclassesAndEmbeddables(entity, reflectedTypes);
+      if (entityDalSpec.getEntityApiSpec() != null) reflectedTypes.put(
+        binaryNameOf(entityDalSpec.getEntityApiSpec()),
+        true
+      );
+      val packageName = processingEnv
+        .getElementUtils()
+        .getPackageOf(entity)
+        .getQualifiedName()
+        .toString();
+      val dao = packageName + "." + entityDalSpec.getSimpleName() + "Dao";
+      reflectedTypes.put(dao, false);
+      if (daoImpls.contains(dao + "Impl")) reflectedTypes.put(
+        dao + "Impl",
+        false
+      ); else proxies.put(dao, withInterfaces(dao, repositoryProxyInterfaces));
+      for (WithProjection projection : entityDalSpec.getAnnotationsByType(
+        WithProjection.class
+      )) {
+        val projectionInterface =
+          packageName +
+          "." +
+          entityDalSpec.getSimpleName() +
+          toPascalCase(projection.name());
+        reflectedTypes.put(projectionInterface, false);
+        proxies.put(
+          projectionInterface,
+          withInterfaces(projectionInterface, projectionProxyInterfaces)
+        );
+      }
+    }
+    val directory = "META-INF/native-image/" + basePackage + "/datafi/";
+    val originatingElements = entityDalSpecs
+      .stream()
+      .map(EntityDalSpec::getElement)
+      .toArray(Element[]::new);
+    writeResource(
+      directory + "reflect-config.json",
+      reflectConfig(reflectedTypes),
+      originatingElements
+    );
+    writeResource(
+      directory + "proxy-config.json",
+      proxyConfig(proxies.values()),
+      originatingElements
+    );
+    writeResource(
+      directory + "resource-config.json",
+      "{\n" +
+      "  \"resources\": {\n" +
+      "    \"includes\": [\n" +
+      "      { \"pattern\": \"\\\\QMETA-INF/datafi/\\\\E.*\\\\.sql$\" }\n" +
+      "    ]\n" +
+      "  }\n" +
+      "}\n",
+      originatingElements
+    );
+  }
+
+  /**
+   * Registers the given entity (or embeddable) type and its superclasses, along with the types
+   * of their @Embeddable fields - such as @EmbeddedId composite ids, and the elements of
+   * element collections - recursively.
+   */
+  private void addWithSuperclassesAndEmbeddables(
+    TypeElement type,
+    Map<String, Boolean> reflectedTypes
+  ) {
+    for (
+      TypeElement current = type;
+      current != null;
+      current = superclassOf(current)
+    ) {
+      reflectedTypes.put(binaryNameOf(current), true);
+      for (VariableElement field : getFieldsOf(current)) {
+        for (TypeElement fieldType : declaredTypesOf(field.asType())) if (
+          fieldType.getAnnotation(Embeddable.class) != null &&
+          !reflectedTypes.containsKey(binaryNameOf(fieldType))
+        ) addWithSuperclassesAndEmbeddables(fieldType, reflectedTypes);
+      }
+    }
+  }
+
+  // the given type's element, along with those of its type arguments, e.g. Set<Address> -> Set, Address
+  private static List<TypeElement> declaredTypesOf(TypeMirror type) {
+    val result = new ArrayList<TypeElement>();
+    if (type.getKind() != TypeKind.DECLARED) return result;
+    val declaredType = (DeclaredType) type;
+    result.add((TypeElement) declaredType.asElement());
+    for (TypeMirror typeArgument : declaredType.getTypeArguments()) {
+      result.addAll(declaredTypesOf(typeArgument));
+    }
+    return result;
+  }
+
+  /**
+   * @param reflectedTypes class names, mapped to whether their fields and constructors
+   *                       are accessed reflectively as well as their methods.
+   */
+  private static String reflectConfig(Map<String, Boolean> reflectedTypes) {
+    val json = new StringJoiner(",\n", "[\n", "\n]\n");
+    reflectedTypes.forEach(
+      (name, isEntityType) -> {
+        val entry = new StringBuilder();
+        entry.append("  {\n    \"name\": \"").append(name).append("\",\n");
+        if (isEntityType) entry
+          .append("    \"allDeclaredFields\": true,\n")
+          .append("    \"allDeclaredConstructors\": true,\n")
+          .append("    \"allDeclaredMethods\": true,\n");
+        entry.append("    \"allPublicMethods\": true\n  }");
+        json.add(entry);
+      }
+    );
+    return json.toString();
+  }
+
+  private static String proxyConfig(Collection<List<String>> proxies) {
+    val json = new StringJoiner(",\n", "[\n", "\n]\n");
+    for (List<String> interfaces : proxies) {
+      val interfaceNames = new StringJoiner("\", \"", "\"", "\"");
+      interfaces.forEach(interfaceNames::add);
+      json.add("  { \"interfaces\": [" + interfaceNames + "] }");
+    }
+    return json.toString();
+  }
+
+  private static List<String> withInterfaces(
+    String proxied,
+    List<String> interfaces
+  ) {
+    val result = new ArrayList<String>();
+    result.add(proxied);
+    result.addAll(interfaces);
+    return result;
+  }
+
+  private void writeResource(
+    String path,
+    String content,
+    Element[] originatingElements
+  ) {
+    try {
+      FileObject resource = processingEnv
+        .getFiler()
+        .createResource(
+          StandardLocation.CLASS_OUTPUT,
+          "",
+          path,
+          originatingElements
+        );
+      try (Writer writer = resource.openWriter()) {
+        writer.write(content);
+      }
+    } catch (IOException e) {
+      processingEnv
+        .getMessager()
+        .printMessage(Diagnostic.Kind.ERROR, e.toString());
+    }
+  }
+
+  private String binaryNameOf(TypeElement type) {
+    return processingEnv.getElementUtils().getBinaryName(type).toString();
+  }
+}
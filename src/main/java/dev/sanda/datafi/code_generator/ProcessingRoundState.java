@@ -0,0 +1,48 @@
+package dev.sanda.datafi.code_generator;
+
+import com.squareup.javapoet.JavaFile;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.Element;
+import lombok.Getter;
+
+/**
+ * The state of an AnnotationProcessor instance which only lives for the duration of a processing round -
+ * generated sources pending rendering and writing, and memoized annotation lookups.
+ * While a round is in progress, the processor binds its state to the processing thread, such that it can
+ * be reached from the static code generation utilities in DatafiStaticUtils via current().
+ */
+@Getter
+public class ProcessingRoundState {
+
+  private static final ThreadLocal<ProcessingRoundState> current =
+    new ThreadLocal<>();
+
+  private final List<JavaFile> pendingJavaFiles = new ArrayList<>();
+  private final Map<Element, Map<Class<? extends Annotation>, Boolean>> directOrIndirectAnnotations =
+    new HashMap<>();
+
+  /**
+   * @return the state of the processing round in progress on the current thread, or null if there is none.
+   */
+  public static ProcessingRoundState current() {
+    return current.get();
+  }
+
+  void begin() {
+    current.set(this);
+  }
+
+  /**
+   * Discards all state - including any generated sources which haven't been written,
+   * i.e. because the round failed midway.
+   */
+  void end() {
+    current.remove();
+    pendingJavaFiles.clear();
+    directOrIndirectAnnotations.clear();
+  }
+}
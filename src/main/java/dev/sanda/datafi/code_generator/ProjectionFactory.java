@@ -0,0 +1,124 @@
+package dev.sanda.datafi.code_generator;
+
+import static dev.sanda.datafi.DatafiStaticUtils.logCompilationError;
+import static dev.sanda.datafi.DatafiStaticUtils.toPascalCase;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import dev.sanda.datafi.DatafiStaticUtils;
+import dev.sanda.datafi.annotations.projections.WithProjection;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import java.util.Collection;
+import java.util.Map;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.VariableElement;
+import javax.persistence.*;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.val;
+
+/**
+ * Generates a closed interface projection for each @WithProjection of an entity. Spring data
+ * selects only the columns backing the projection's getters, rather than hydrating the entire entity.
+ * As such, only basic and embedded fields can be projected - associations and collections don't map
+ * onto a single selected column.
+ */
+@Data
+public class ProjectionFactory {
+
+  @NonNull
+  private ProcessingEnvironment processingEnv;
+
+  protected void generateProjections(EntityDalSpec entityDalSpec) {
+    val entity = entityDalSpec.getElement();
+    val packageName = ClassName.get(entity).packageName();
+    for (WithProjection projection : entityDalSpec.getAnnotationsByType(
+      WithProjection.class
+    )) {
+      val projectionName =
+        entityDalSpec.getSimpleName() + toPascalCase(projection.name());
+      TypeSpec.Builder builder = TypeSpec
+        .interfaceBuilder(projectionName)
+        .addModifiers(Modifier.PUBLIC);
+      boolean isValid = true;
+      for (String fieldName : projection.fields()) {
+        val field = FreeTextSearchMethodsFactory.fieldOf(entity, fieldName);
+        if (field == null) {
+          logCompilationError(
+            processingEnv,
+            entity,
+            "Projection " +
+            projectionName +
+            " refers to unknown field " +
+            fieldName
+          );
+          isValid = false;
+          continue;
+        }
+        if (isAssociationOrCollection(field)) {
+          logCompilationError(
+            processingEnv,
+            entity,
+            "Projection " +
+            projectionName +
+            " refers to association or collection field " +
+            fieldName +
+            ", only basic and embedded fields can be projected"
+          );
+          isValid = false;
+          continue;
+        }
+        builder.addMethod(
+          MethodSpec
+            .methodBuilder("get" + toPascalCase(fieldName))
+            .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+            //boxed, as the selected column may be null
+            .returns(TypeName.get(field.asType()).box())
+            .build()
+        );
+      }
+      if (isValid) DatafiStaticUtils.writeToJavaFile(
+        projectionName,
+        packageName,
+        builder,
+        processingEnv,
+        "projection",
+        DatafiStaticUtils.originatingElementsOf(entityDalSpec)
+      );
+    }
+  }
+
+  private boolean isAssociationOrCollection(VariableElement field) {
+    if (
+      field.getAnnotation(OneToOne.class) != null ||
+      field.getAnnotation(ManyToOne.class) != null ||
+      field.getAnnotation(OneToMany.class) != null ||
+      field.getAnnotation(ManyToMany.class) != null ||
+      field.getAnnotation(ElementCollection.class) != null
+    ) return true;
+    val typeUtils = processingEnv.getTypeUtils();
+    val elementUtils = processingEnv.getElementUtils();
+    val fieldType = typeUtils.erasure(field.asType());
+    return (
+      typeUtils.isAssignable(
+        fieldType,
+        typeUtils.erasure(
+          elementUtils.getTypeElement(Collection.class.getName()).asType()
+        )
+      ) ||
+      typeUtils.isAssignable(
+        fieldType,
+        typeUtils.erasure(
+          elementUtils.getTypeElement(Map.class.getName()).asType()
+        )
+      )
+    );
+  }
+
+  static boolean hasProjections(EntityDalSpec entityDalSpec) {
+    return !entityDalSpec.getAnnotationsByType(WithProjection.class).isEmpty();
+  }
+}
@@ -0,0 +1,471 @@
+package dev.sanda.datafi.code_generator;
+
+import static com.squareup.javapoet.ParameterizedTypeName.get;
+import static dev.sanda.datafi.DatafiStaticUtils.getFieldsOf;
+import static dev.sanda.datafi.DatafiStaticUtils.getGettersOf;
+import static dev.sanda.datafi.DatafiStaticUtils.superclassOf;
+import static dev.sanda.datafi.DatafiStaticUtils.toPascalCase;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import dev.sanda.datafi.DatafiStaticUtils;
+import dev.sanda.datafi.annotations.attributes.AutoSynchronized;
+import dev.sanda.datafi.code_generator.FieldAccessorResolver.FieldAccessor;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import dev.sanda.datafi.service.RelationshipSynchronizer;
+import java.util.*;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
+import javax.tools.Diagnostic;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.val;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates a RelationshipSynchronizer implementation for each entity, such that nested entities
+ * can be pointed back at their owners without reflection. Which backpointer field corresponds to
+ * each owner field is determined here at compile time using the same rules as EntityRelationshipSyncronizer
+ * does at runtime. Entities with backpointers which are either inaccessible from generated code, or cannot be
+ * unambiguously resolved, are skipped and fall back to the reflection based synchronizer at runtime.
+ */
+@Data
+public class RelationshipSynchronizerFactory {
+
+  private static final Map<String, Class<?>> DEFAULT_COLLECTION_TYPES =
+    new HashMap<>();
+
+  static {
+    DEFAULT_COLLECTION_TYPES.put(Collection.class.getName(), HashSet.class);
+    DEFAULT_COLLECTION_TYPES.put(Set.class.getName(), HashSet.class);
+    DEFAULT_COLLECTION_TYPES.put(List.class.getName(), ArrayList.class);
+    DEFAULT_COLLECTION_TYPES.put(Queue.class.getName(), LinkedList.class);
+    DEFAULT_COLLECTION_TYPES.put(Deque.class.getName(), ArrayDeque.class);
+  }
+
+  @NonNull
+  private ProcessingEnvironment processingEnv;
+
+  private FieldAccessorResolver fieldAccessorResolver;
+
+  protected void generateRelationshipSynchronizer(
+    EntityDalSpec entityDalSpec
+  ) {
+    if (fieldAccessorResolver == null) fieldAccessorResolver =
+      new FieldAccessorResolver(processingEnv);
+    val entity = entityDalSpec.getElement();
+    val entityType = ClassName.get(entity);
+    val packageName = entityType.packageName();
+    val synchronizerName =
+      entityDalSpec.getSimpleName() + "RelationshipSynchronizer";
+
+    // owner type -> referencing owner field name -> backpointer field
+    Map<TypeElement, Map<String, VariableElement>> oneToManyBackpointers =
+      new LinkedHashMap<>();
+    Map<TypeElement, Map<String, VariableElement>> oneToOneBackpointers =
+      new LinkedHashMap<>();
+    if (
+      !populateBackpointerMaps(
+        entityDalSpec,
+        oneToManyBackpointers,
+        oneToOneBackpointers
+      )
+    ) return;
+
+    MethodSpec.Builder trySetBackpointer = MethodSpec
+      .methodBuilder("trySetBackpointer")
+      .addAnnotation(Override.class)
+      .addModifiers(Modifier.PUBLIC)
+      .addParameter(String.class, "ownerFieldName")
+      .addParameter(entityType, "toUpdate")
+      .addParameter(Object.class, "owner")
+      .returns(boolean.class);
+    boolean hasAnyCases = false;
+    val ownerTypes = new LinkedHashSet<TypeElement>();
+    ownerTypes.addAll(oneToManyBackpointers.keySet());
+    ownerTypes.addAll(oneToOneBackpointers.keySet());
+    for (TypeElement ownerType : ownerTypes) {
+      val ownerClassName = ClassName.get(ownerType);
+      val cases = CodeBlock.builder();
+      boolean hasCases = false;
+      for (VariableElement ownerField : getForeignKeysReferencing(
+        ownerType,
+        entity
+      )) {
+        val isManyToOne = ownerField.getAnnotation(ManyToOne.class) != null;
+        val backpointerField = getTargetField(
+          ownerField.getSimpleName().toString(),
+          ownerType,
+          isManyToOne ? oneToManyBackpointers : oneToOneBackpointers
+        );
+        if (backpointerField == null) continue;
+        FieldAccessor accessor = fieldAccessorResolver.resolve(
+          backpointerField,
+          entity,
+          packageName
+        );
+        if (accessor == null) {
+          logReflectiveFallback(
+            entityDalSpec,
+            "Field " +
+            backpointerField.getSimpleName() +
+            " is not accessible from generated code"
+          );
+          return;
+        }
+        cases.beginControlFlow("case $S:", ownerField.getSimpleName());
+        if (isManyToOne) {
+          CodeBlock newCollection = newCollectionOf(backpointerField);
+          if (newCollection == null) {
+            logReflectiveFallback(
+              entityDalSpec,
+              "The collection type of field " +
+              backpointerField.getSimpleName() +
+              " cannot be instantiated from generated code"
+            );
+            return;
+          }
+          cases
+            .addStatement(
+              "$T backpointers = $L",
+              TypeName.get(backpointerField.asType()),
+              accessor.read("toUpdate")
+            )
+            .beginControlFlow("if (backpointers == null)")
+            .addStatement("backpointers = $L", newCollection)
+            .addStatement(
+              "$L",
+              accessor.write("toUpdate", CodeBlock.of("backpointers"))
+            )
+            .endControlFlow()
+            .addStatement("backpointers.add(($T) owner)", ownerClassName);
+        } else {
+          cases.addStatement(
+            "$L",
+            accessor.write(
+              "toUpdate",
+              CodeBlock.of("($T) owner", ownerClassName)
+            )
+          );
+        }
+        cases.addStatement("return true").endControlFlow();
+        hasCases = true;
+      }
+      if (!hasCases) continue;
+      hasAnyCases = true;
+      trySetBackpointer
+        .beginControlFlow("if (owner instanceof $T)", ownerClassName)
+        .beginControlFlow("switch (ownerFieldName)")
+        .addCode(cases.build())
+        .endControlFlow()
+        .endControlFlow();
+    }
+    // nothing to synchronize, so no need for a synchronizer bean
+    if (!hasAnyCases) return;
+    trySetBackpointer.addStatement("return false");
+
+    TypeSpec.Builder builder = TypeSpec
+      .classBuilder(synchronizerName)
+      .addModifiers(Modifier.PUBLIC)
+      .addAnnotation(Component.class)
+      .addSuperinterface(
+        get(ClassName.get(RelationshipSynchronizer.class), entityType)
+      )
+      .addMethod(
+        MethodSpec
+          .methodBuilder("getEntityType")
+          .addAnnotation(Override.class)
+          .addModifiers(Modifier.PUBLIC)
+          .returns(get(ClassName.get(Class.class), entityType))
+          .addStatement("return $T.class", entityType)
+          .build()
+      )
+      .addMethod(trySetBackpointer.build());
+    DatafiStaticUtils.writeToJavaFile(
+      entityDalSpec.getSimpleName(),
+      packageName,
+      builder,
+      processingEnv,
+      "relationship synchronizer",
+      DatafiStaticUtils.originatingElementsOf(entityDalSpec)
+    );
+  }
+
+  /**
+   * Compile time equivalent of EntityRelationshipSyncronizer.populateBackpointerMaps(),
+   * limited to the backpointer types which can be reached from an owner's foreign key.
+   * @return false if the backpointers cannot be resolved at compile time.
+   */
+  private boolean populateBackpointerMaps(
+    EntityDalSpec entityDalSpec,
+    Map<TypeElement, Map<String, VariableElement>> oneToManyBackpointers,
+    Map<TypeElement, Map<String, VariableElement>> oneToOneBackpointers
+  ) {
+    val entity = entityDalSpec.getElement();
+    val apiSpecGettersByFieldName = getApiSpecGettersByFieldName(
+      entity,
+      entityDalSpec.getEntityApiSpec()
+    );
+    for (VariableElement field : getAllFieldsOf(entity)) {
+      val fieldName = field.getSimpleName().toString();
+      val apiSpecGetter = apiSpecGettersByFieldName.get(fieldName);
+      Map<TypeElement, Map<String, VariableElement>> backpointers;
+      if (field.getAnnotation(OneToMany.class) != null) backpointers =
+        oneToManyBackpointers; else if (
+        field.getAnnotation(OneToOne.class) != null
+      ) backpointers = oneToOneBackpointers; else continue;
+      if (
+        field.getModifiers().contains(Modifier.STATIC) ||
+        isIrrelevantField(field, entity, apiSpecGetter)
+      ) continue;
+      val referencedType = referencedEntityOf(field);
+      if (referencedType == null) {
+        logReflectiveFallback(
+          entityDalSpec,
+          "The type referenced by field " + fieldName + " cannot be resolved"
+        );
+        return false;
+      }
+      val annotationInstance = getAnnotationInstance(field, apiSpecGetter);
+      val isExplicitlyScoped =
+        annotationInstance != null &&
+        !annotationInstance.referencedBy().equals("");
+      if (backpointers.containsKey(referencedType) && !isExplicitlyScoped) {
+        logReflectiveFallback(
+          entityDalSpec,
+          "Field " +
+          fieldName +
+          " is an ambiguous @AutoSynchronized backpointer to " +
+          referencedType.getSimpleName()
+        );
+        return false;
+      }
+      val referencedBy = isExplicitlyScoped
+        ? annotationInstance.referencedBy()
+        : resolveReferencedByFieldName(entity, referencedType);
+      if (referencedBy == null) {
+        logReflectiveFallback(
+          entityDalSpec,
+          "No field of " +
+          referencedType.getSimpleName() +
+          " references " +
+          entity.getSimpleName()
+        );
+        return false;
+      }
+      backpointers
+        .computeIfAbsent(referencedType, type -> new LinkedHashMap<>())
+        .put(referencedBy, field);
+    }
+    return true;
+  }
+
+  private Map<String, ExecutableElement> getApiSpecGettersByFieldName(
+    TypeElement entity,
+    TypeElement apiSpec
+  ) {
+    Map<String, String> fieldNamesByPascalCaseName = new HashMap<>();
+    getAllFieldsOf(entity)
+      .forEach(
+        field -> {
+          String fieldName = field.getSimpleName().toString();
+          fieldNamesByPascalCaseName.put(toPascalCase(fieldName), fieldName);
+        }
+      );
+    Map<String, ExecutableElement> result = new HashMap<>();
+    for (ExecutableElement getter : getGettersOf(apiSpec)) {
+      val fieldName = fieldNamesByPascalCaseName.get(
+        getter.getSimpleName().toString().replaceFirst("get", "")
+      );
+      if (fieldName != null) result.put(fieldName, getter);
+    }
+    return result;
+  }
+
+  private boolean isIrrelevantField(
+    VariableElement field,
+    TypeElement entity,
+    ExecutableElement apiSpecGetter
+  ) {
+    return !(
+      field.getAnnotation(AutoSynchronized.class) != null ||
+      entity.getAnnotation(AutoSynchronized.class) != null ||
+      (
+        apiSpecGetter != null &&
+        (
+          apiSpecGetter.getAnnotation(AutoSynchronized.class) != null ||
+          apiSpecGetter
+            .getEnclosingElement()
+            .getAnnotation(AutoSynchronized.class) !=
+          null
+        )
+      )
+    );
+  }
+
+  private AutoSynchronized getAnnotationInstance(
+    VariableElement field,
+    ExecutableElement apiSpecGetter
+  ) {
+    if (
+      apiSpecGetter != null &&
+      apiSpecGetter.getAnnotation(AutoSynchronized.class) != null
+    ) return apiSpecGetter.getAnnotation(AutoSynchronized.class);
+    return field.getAnnotation(AutoSynchronized.class);
+  }
+
+  private String resolveReferencedByFieldName(
+    TypeElement entity,
+    TypeElement referencedType
+  ) {
+    return getAllFieldsOf(referencedType)
+      .stream()
+      .filter(candidate -> entity.equals(referencedEntityOf(candidate)))
+      .map(candidate -> candidate.getSimpleName().toString())
+      .findFirst()
+      .orElse(null);
+  }
+
+  /**
+   * Compile time equivalent of EntityRelationshipSyncronizer.getTargetField(...)
+   */
+  private VariableElement getTargetField(
+    String ownerFieldName,
+    TypeElement ownerType,
+    Map<TypeElement, Map<String, VariableElement>> backpointers
+  ) {
+    if (!backpointers.containsKey(ownerType)) return null;
+    return backpointers.size() == 1
+      ? backpointers.get(ownerType).values().iterator().next()
+      : backpointers.get(ownerType).get(ownerFieldName);
+  }
+
+  /**
+   * @return the @OneToOne / @ManyToOne fields of ownerType (including inherited ones) which are of the given entity type.
+   */
+  private List<VariableElement> getForeignKeysReferencing(
+    TypeElement ownerType,
+    TypeElement entity
+  ) {
+    val result = new ArrayList<VariableElement>();
+    for (VariableElement field : getAllFieldsOf(ownerType)) {
+      if (
+        field.getAnnotation(ManyToOne.class) == null &&
+        field.getAnnotation(OneToOne.class) == null
+      ) continue;
+      if (
+        field.asType().getKind() == TypeKind.DECLARED &&
+        entity.equals(((DeclaredType) field.asType()).asElement())
+      ) result.add(field);
+    }
+    return result;
+  }
+
+  /**
+   * @return the fields of the given type along with those inherited from its superclasses
+   * (i.e. a @MappedSuperclass), omitting superclass fields which are hidden by a subclass field of the same name.
+   */
+  private List<VariableElement> getAllFieldsOf(TypeElement type) {
+    val fieldNames = new HashSet<String>();
+    val result = new ArrayList<VariableElement>();
+    for (
+      TypeElement current = type;
+      current != null;
+      current = superclassOf(current)
+    ) {
+      for (VariableElement field : getFieldsOf(current)) {
+        if (fieldNames.add(field.getSimpleName().toString())) result.add(field);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the entity type referenced by the given field - either the field type itself,
+   * or its element type in the case of collections. Null if it cannot be resolved.
+   */
+  private TypeElement referencedEntityOf(VariableElement field) {
+    TypeMirror type = field.asType();
+    if (type.getKind() != TypeKind.DECLARED) return null;
+    if (isCollection(type)) {
+      val typeArguments = ((DeclaredType) type).getTypeArguments();
+      if (typeArguments.size() != 1) return null;
+      type = typeArguments.get(0);
+      if (type.getKind() != TypeKind.DECLARED) return null;
+    }
+    return (TypeElement) ((DeclaredType) type).asElement();
+  }
+
+  private boolean isCollection(TypeMirror type) {
+    val typeUtils = processingEnv.getTypeUtils();
+    return typeUtils.isAssignable(
+      typeUtils.erasure(type),
+      typeUtils.erasure(
+        processingEnv
+          .getElementUtils()
+          .getTypeElement(Collection.class.getCanonicalName())
+          .asType()
+      )
+    );
+  }
+
+  /**
+   * Compile time equivalent of EntityRelationshipSyncronizer.instantiateCollection(...)
+   * @return null if no suitable collection type can be instantiated.
+   */
+  private CodeBlock newCollectionOf(VariableElement field) {
+    if (!isCollection(field.asType())) return null;
+    val collectionType = (TypeElement) (
+      (DeclaredType) field.asType()
+    ).asElement();
+    val defaultType = DEFAULT_COLLECTION_TYPES.get(
+      collectionType.getQualifiedName().toString()
+    );
+    if (defaultType != null) return CodeBlock.of("new $T<>()", defaultType);
+    boolean isInstantiable =
+      collectionType.getKind() == ElementKind.CLASS &&
+      !collectionType.getModifiers().contains(Modifier.ABSTRACT) &&
+      ElementFilter
+        .constructorsIn(collectionType.getEnclosedElements())
+        .stream()
+        .anyMatch(
+          constructor ->
+            constructor.getParameters().isEmpty() &&
+            constructor.getModifiers().contains(Modifier.PUBLIC)
+        );
+    if (!isInstantiable) return null;
+    return collectionType.getTypeParameters().isEmpty()
+      ? CodeBlock.of("new $T()", ClassName.get(collectionType))
+      : CodeBlock.of("new $T<>()", ClassName.get(collectionType));
+  }
+
+  private void logReflectiveFallback(
+    EntityDalSpec entityDalSpec,
+    String reason
+  ) {
+    processingEnv
+      .getMessager()
+      .printMessage(
+        Diagnostic.Kind.NOTE,
+        reason +
+        ", " +
+        entityDalSpec.getSimpleName() +
+        " backpointers will be synchronized via reflection",
+        entityDalSpec.getElement()
+      );
+  }
+}
@@ -5,6 +5,7 @@ import static dev.sanda.datafi.DatafiStaticUtils.*;
 import com.squareup.javapoet.TypeName;
 import dev.sanda.datafi.annotations.attributes.NonApiUpdatables;
 import dev.sanda.datafi.annotations.free_text_search.WithFreeTextSearchByFields;
+import dev.sanda.datafi.annotations.projections.WithProjection;
 import dev.sanda.datafi.annotations.query.WithNativeQuery;
 import dev.sanda.datafi.annotations.query.WithQuery;
 import dev.sanda.datafi.annotations.query.WithQueryScripts;
@@ -23,6 +24,9 @@ public class EntityDalSpec extends AnnotatedElementSpec<TypeElement> {
   @Getter
   private List<FieldDalSpec> fieldDalSpecs;
 
+  @Getter
+  private TypeElement entityApiSpec;
+
   public Map<String, TypeName> getEntityFieldTypes() {
     return fieldDalSpecs
       .stream()
@@ -36,6 +40,7 @@ public class EntityDalSpec extends AnnotatedElementSpec<TypeElement> {
 
   public EntityDalSpec(TypeElement entity, TypeElement entityApiSpec) {
     super(entity);
+    this.entityApiSpec = entityApiSpec;
     if (entityApiSpec != null) addAnnotations(entityApiSpec);
     setFieldSpecs(entityApiSpec);
   }
@@ -71,6 +76,7 @@ public class EntityDalSpec extends AnnotatedElementSpec<TypeElement> {
       NonApiUpdatables.class,
       WithFreeTextSearchByFields.class,
       WithNativeQuery.class,
+      WithProjection.class,
       WithQuery.class,
       WithQueryScripts.class,
     };
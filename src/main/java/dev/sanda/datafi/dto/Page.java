@@ -6,6 +6,7 @@ import java.util.Map;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.Slice;
 
 @Getter
 @Setter
@@ -16,6 +17,13 @@ public class Page<T> {
   private Long totalPagesCount;
   private Long totalItemsCount;
   private Integer pageNumber;
+  private Boolean hasNext;
+
+  /**
+   * When keyset paging, the cursor with which to request the following page,
+   * or null if this is the last page.
+   */
+  private String nextCursor;
 
   private Map<String, Object> customValues = new HashMap<>();
 
@@ -24,5 +32,26 @@ public class Page<T> {
     totalPagesCount = (long) page.getTotalPages();
     totalItemsCount = page.getTotalElements();
     pageNumber = page.getNumber();
+    hasNext = page.hasNext();
+  }
+
+  public Page(Slice<T> slice) {
+    content = slice.getContent();
+    pageNumber = slice.getNumber();
+    hasNext = slice.hasNext();
+  }
+
+  public Page(Slice<T> slice, long totalItemsCount) {
+    this(slice);
+    this.totalItemsCount = totalItemsCount;
+    final int pageSize = slice.getSize();
+    totalPagesCount =
+      pageSize > 0 ? (totalItemsCount + pageSize - 1) / pageSize : 1;
+  }
+
+  public Page(List<T> content, String nextCursor) {
+    this.content = content;
+    this.nextCursor = nextCursor;
+    hasNext = nextCursor != null;
   }
 }
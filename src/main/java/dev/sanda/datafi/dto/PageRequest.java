@@ -16,6 +16,24 @@ public class PageRequest {
   private Sort.Direction sortDirection = ASC;
   private Boolean fetchAll = false;
 
+  /**
+   * If false, the page is fetched as a slice - i.e. pageSize + 1 items are fetched in order to
+   * determine hasNext, and no count query is run. The total counts of the returned page are null.
+   */
+  private Boolean countTotal = true;
+
+  /**
+   * If true, pages are fetched by keyset (a.k.a seek) rather than by offset -
+   * i.e. each page continues after the sort key and id of the last item of the previous page,
+   * as encoded in that page's nextCursor. pageNumber is ignored in this mode.
+   */
+  private Boolean keysetPaging = false;
+
+  /**
+   * The nextCursor of the previous page, or null for the first page (keyset paging only).
+   */
+  private String cursor;
+
   private Map<String, Object> customArgs = new HashMap<>();
 
   public boolean isValidPagingRange() {
@@ -0,0 +1,20 @@
+package dev.sanda.datafi.metrics;
+
+/**
+ * Receives the outcome of each DataManager operation. Implementations must be thread safe,
+ * and should be cheap - they're invoked on every call.
+ * Define a bean of this type in order to replace the default (micrometer based, if available) implementation.
+ */
+public interface DataManagerMetrics {
+  /**
+   * @return false if nothing is being recorded, in which case DataManager skips timing its operations altogether.
+   */
+  boolean isEnabled();
+
+  /**
+   * @param entityType the type of entity the DataManager manages
+   * @param operation the DataManager operation, e.g. "findAll" or "cascadeUpdate"
+   * @param durationNanos how long the operation took, in nanoseconds
+   */
+  void record(Class<?> entityType, String operation, long durationNanos);
+}
@@ -0,0 +1,34 @@
+package dev.sanda.datafi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the micrometer adapter whenever micrometer is on the classpath and a MeterRegistry is available.
+ * Can be disabled by setting datafi.metrics.enabled=false.
+ */
+@Configuration
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+@ConditionalOnProperty(
+  name = "datafi.metrics.enabled",
+  havingValue = "true",
+  matchIfMissing = true
+)
+public class DataManagerMetricsConfig {
+
+  @Bean
+  @ConditionalOnMissingBean(DataManagerMetrics.class)
+  public DataManagerMetrics datafiDataManagerMetrics(
+    ObjectProvider<MeterRegistry> meterRegistry
+  ) {
+    final MeterRegistry registry = meterRegistry.getIfAvailable();
+    return registry != null
+      ? new MicrometerDataManagerMetrics(registry)
+      : NoOpDataManagerMetrics.INSTANCE;
+  }
+}
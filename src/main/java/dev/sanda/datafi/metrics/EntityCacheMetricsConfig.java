@@ -0,0 +1,50 @@
+package dev.sanda.datafi.metrics;
+
+import dev.sanda.datafi.service.EntityCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Binds the hit, miss and eviction statistics of each @CacheableEntity cache to the MeterRegistry
+ * (as the standard cache.* meters, tagged with cache=datafi.entity-cache and the entity name),
+ * whenever micrometer is on the classpath
+ * and a MeterRegistry is available. Can be disabled by setting datafi.metrics.enabled=false.
+ */
+@Configuration
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+@ConditionalOnProperty(
+  name = "datafi.metrics.enabled",
+  havingValue = "true",
+  matchIfMissing = true
+)
+public class EntityCacheMetricsConfig {
+
+  @Bean
+  public SmartInitializingSingleton datafiEntityCacheMetricsBinder(
+    EntityCache entityCache,
+    ObjectProvider<MeterRegistry> meterRegistry
+  ) {
+    return () -> {
+      final MeterRegistry registry = meterRegistry.getIfAvailable();
+      if (registry == null) return;
+      entityCache
+        .caches()
+        .forEach(
+          (entityName, cache) ->
+            CaffeineCacheMetrics.monitor(
+              registry,
+              cache,
+              "datafi.entity-cache",
+              "entity",
+              entityName
+            )
+        );
+    };
+  }
+}
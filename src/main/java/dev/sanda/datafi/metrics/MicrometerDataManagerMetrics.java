@@ -0,0 +1,48 @@
+package dev.sanda.datafi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Records each DataManager operation in a "datafi.data-manager" timer tagged by entity and operation,
+ * which provides both a per entity, per operation invocation count and a latency histogram.
+ * Timers are created once and cached, so recording does not allocate.
+ */
+@RequiredArgsConstructor
+public class MicrometerDataManagerMetrics implements DataManagerMetrics {
+
+  public static final String METER_NAME = "datafi.data-manager";
+
+  @NonNull
+  private final MeterRegistry meterRegistry;
+
+  private final Map<Class<?>, Map<String, Timer>> timers = new ConcurrentHashMap<>();
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public void record(Class<?> entityType, String operation, long durationNanos) {
+    timers
+      .computeIfAbsent(entityType, type -> new ConcurrentHashMap<>())
+      .computeIfAbsent(operation, op -> timerFor(entityType, op))
+      .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private Timer timerFor(Class<?> entityType, String operation) {
+    return Timer
+      .builder(METER_NAME)
+      .description("Latency of DataManager operations")
+      .tag("entity", entityType.getSimpleName())
+      .tag("operation", operation)
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+  }
+}
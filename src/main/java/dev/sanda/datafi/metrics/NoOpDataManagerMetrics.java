@@ -0,0 +1,14 @@
+package dev.sanda.datafi.metrics;
+
+public class NoOpDataManagerMetrics implements DataManagerMetrics {
+
+  public static final NoOpDataManagerMetrics INSTANCE = new NoOpDataManagerMetrics();
+
+  @Override
+  public boolean isEnabled() {
+    return false;
+  }
+
+  @Override
+  public void record(Class<?> entityType, String operation, long durationNanos) {}
+}
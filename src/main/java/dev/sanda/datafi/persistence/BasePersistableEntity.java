@@ -4,12 +4,15 @@ import dev.sanda.datafi.annotations.attributes.NonApiUpdatable;
 import java.io.Serializable;
 import javax.persistence.*;
 import lombok.*;
+import org.springframework.data.domain.Persistable;
 
 /**
  * A convenient @MappedSuperclass which takes care of the boilerplate
  * code required to deal with the logic of persisting an entity
  * to a database - i.e. generating the id, marking a given
  * instance as non-archived, adding a 'createdAt' column.
+ * Implements Persistable, such that saving a new instance results in
+ * a plain persist, rather than in a merge (and therefore an additional select).
  *
  * @param <TID>
  */
@@ -18,7 +21,8 @@ import lombok.*;
 @RequiredArgsConstructor
 @NoArgsConstructor
 @Getter
-public abstract class BasePersistableEntity<TID> implements Serializable {
+public abstract class BasePersistableEntity<TID>
+  implements Serializable, Persistable<TID> {
 
   /**
    * If directly inheriting from this class,
@@ -38,6 +42,9 @@ public abstract class BasePersistableEntity<TID> implements Serializable {
   @NonApiUpdatable
   private Long version = 0L;
 
+  // transient - neither persisted, nor included in equals / hashCode
+  private transient boolean isMarkedExisting = false;
+
   @PrePersist
   public void init() {
     if (isFirstPersist) {
@@ -49,5 +56,27 @@ public abstract class BasePersistableEntity<TID> implements Serializable {
 
   protected void customFirstTimeInit() {}
 
+  /**
+   * isFirstPersist is persisted, and is therefore false for every loaded row, as is a
+   * version which has been incremented by an update. Ids assigned prior to being saved
+   * (i.e. via IdFactory.reserve(...)) don't affect newness.
+   */
+  @Override
+  public boolean isNew() {
+    return (
+      !isMarkedExisting &&
+      Boolean.TRUE.equals(isFirstPersist) &&
+      (version == null || version == 0L)
+    );
+  }
+
+  /**
+   * Marks a detached copy of an existing entity which has been constructed from scratch
+   * (and therefore still appears to be new) as existing, such that saving it results in a merge.
+   */
+  public void markExisting() {
+    isMarkedExisting = true;
+  }
+
   public abstract void initId();
 }
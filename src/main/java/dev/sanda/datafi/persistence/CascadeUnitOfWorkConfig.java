@@ -0,0 +1,41 @@
+package dev.sanda.datafi.persistence;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * When cascade updates are written as a single unit of work (datafi.cascade-update.unit-of-work=true),
+ * enables JDBC batching and ordered inserts / updates, such that the statements produced by the
+ * unit of work's flush are grouped by entity type and sent in batches.
+ * Explicitly configured hibernate settings take precedence.
+ */
+@Configuration
+@ConditionalOnProperty(
+  name = "datafi.cascade-update.unit-of-work",
+  havingValue = "true"
+)
+public class CascadeUnitOfWorkConfig {
+
+  @Value("${datafi.cascade-update.batch-size:50}")
+  private int batchSize;
+
+  @Bean
+  public HibernatePropertiesCustomizer datafiJdbcBatchingCustomizer() {
+    return hibernateProperties -> {
+      hibernateProperties.putIfAbsent(
+        AvailableSettings.STATEMENT_BATCH_SIZE,
+        String.valueOf(batchSize)
+      );
+      hibernateProperties.putIfAbsent(AvailableSettings.ORDER_UPDATES, "true");
+      hibernateProperties.putIfAbsent(AvailableSettings.ORDER_INSERTS, "true");
+      hibernateProperties.putIfAbsent(
+        AvailableSettings.BATCH_VERSIONED_DATA,
+        "true"
+      );
+    };
+  }
+}
@@ -0,0 +1,49 @@
+package dev.sanda.datafi.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the DynamicUpdateIntegrator, such that the changes copied over by
+ * DataManager.cascadeUpdate(...) are written using UPDATE statements which touch
+ * only the changed columns. Any integrator provider which has already been configured is preserved.
+ * As this changes the mapping of every entity within the persistence unit (and means that updates
+ * touching different sets of columns can no longer share a JDBC batch), it is opt-in -
+ * enabled by setting datafi.dynamic-update=true.
+ */
+@Configuration
+@ConditionalOnProperty(
+  name = "datafi.dynamic-update",
+  havingValue = "true",
+  matchIfMissing = false
+)
+public class DynamicUpdateConfig {
+
+  @Bean
+  public HibernatePropertiesCustomizer datafiDynamicUpdateCustomizer() {
+    return hibernateProperties -> {
+      final Object existing = hibernateProperties.get(
+        EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER
+      );
+      final IntegratorProvider integratorProvider = () -> {
+        List<Integrator> integrators = new ArrayList<>();
+        if (existing instanceof IntegratorProvider) integrators.addAll(
+          ((IntegratorProvider) existing).getIntegrators()
+        );
+        integrators.add(new DynamicUpdateIntegrator());
+        return integrators;
+      };
+      hibernateProperties.put(
+        EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+        integratorProvider
+      );
+    };
+  }
+}
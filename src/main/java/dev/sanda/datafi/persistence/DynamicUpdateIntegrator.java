@@ -0,0 +1,32 @@
+package dev.sanda.datafi.persistence;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Marks every mapped entity as dynamic-update (equivalent to annotating it with
+ * org.hibernate.annotations.DynamicUpdate), such that Hibernate issues UPDATE statements
+ * containing only the columns which have actually changed, rather than all of them.
+ * Integrators run before the entity persisters are built, so the flag is honored as if it had been mapped.
+ */
+public class DynamicUpdateIntegrator implements Integrator {
+
+  @Override
+  public void integrate(
+    Metadata metadata,
+    SessionFactoryImplementor sessionFactory,
+    SessionFactoryServiceRegistry serviceRegistry
+  ) {
+    metadata
+      .getEntityBindings()
+      .forEach(persistentClass -> persistentClass.setDynamicUpdate(true));
+  }
+
+  @Override
+  public void disintegrate(
+    SessionFactoryImplementor sessionFactory,
+    SessionFactoryServiceRegistry serviceRegistry
+  ) {}
+}
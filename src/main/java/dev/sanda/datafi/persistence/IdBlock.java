@@ -0,0 +1,52 @@
+package dev.sanda.datafi.persistence;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A block of consecutive, time ordered ids reserved via SequenceGenerator.nextIds(count) or
+ * IdFactory.reserve(count). Not thread safe - a block is meant to be consumed by a single thread.
+ */
+public final class IdBlock {
+
+  private final SequenceGenerator sequenceGenerator;
+  // (timestamp << SEQUENCE_BITS) | sequence of the first id in the block
+  private final long first;
+  private final int size;
+  private int position = 0;
+
+  IdBlock(SequenceGenerator sequenceGenerator, long first, int size) {
+    this.sequenceGenerator = sequenceGenerator;
+    this.first = first;
+    this.size = size;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int remaining() {
+    return size - position;
+  }
+
+  public boolean hasNext() {
+    return position < size;
+  }
+
+  public long next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    return sequenceGenerator.toId(first + position++);
+  }
+
+  public long get(int index) {
+    if (index < 0 || index >= size) throw new IndexOutOfBoundsException(
+      "Index: " + index + ", size: " + size
+    );
+    return sequenceGenerator.toId(first + index);
+  }
+
+  public long[] toArray() {
+    final long[] ids = new long[size];
+    for (int i = 0; i < size; i++) ids[i] = sequenceGenerator.toId(first + i);
+    return ids;
+  }
+}
@@ -7,4 +7,12 @@ public class IdFactory {
   public static Long getNextId() {
     return sequenceGenerator.nextId();
   }
+
+  /**
+   * Reserves count (up to SequenceGenerator.MAX_BLOCK_SIZE) consecutive ids in a single atomic step,
+   * i.e. for assigning ids to a batch of entities prior to saveAll(...).
+   */
+  public static IdBlock reserve(int count) {
+    return sequenceGenerator.nextIds(count);
+  }
 }
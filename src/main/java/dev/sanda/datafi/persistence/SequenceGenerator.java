@@ -2,9 +2,22 @@ package dev.sanda.datafi.persistence;
 
 import java.net.NetworkInterface;
 import java.security.SecureRandom;
-import java.time.Instant;
 import java.util.Enumeration;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates 64 bit, time ordered (Snowflake style) ids - 42 bits of milliseconds since the custom epoch,
+ * 10 bits of node id and 12 bits of sequence.
+ * The last issued timestamp and sequence are packed into a single AtomicLong, which is advanced via
+ * compare-and-set, so that id generation never blocks (nor pins virtual threads).
+ * Once a millisecond's sequence is exhausted - or if the system clock moves backwards - ids are issued
+ * from the following milliseconds ahead of the clock, up to MAX_BORROWED_MILLIS; beyond that,
+ * callers park until the clock catches up. If the clock has moved back by more than
+ * MAX_CLOCK_ROLLBACK_MILLIS, an IllegalStateException is thrown instead of parking for that long.
+ * Batch inserts can reserve up to MAX_BLOCK_SIZE ids at once via nextIds(count).
+ */
 public class SequenceGenerator {
 
   private static final int TOTAL_BITS = 64;
@@ -18,10 +31,19 @@ public class SequenceGenerator {
   // Custom Epoch (January 1, 2015 Midnight UTC = 2015-01-01T00:00:00Z)
   private static final long CUSTOM_EPOCH = 1420070400000L;
 
+  // Maximum number of ids which can be reserved at once via nextIds(count)
+  public static final int MAX_BLOCK_SIZE = 4096;
+
+  // How far ahead of the system clock issued timestamps may run
+  private static final long MAX_BORROWED_MILLIS = 100L;
+
+  // How far back the system clock may move before id generation fails rather than waits
+  private static final long MAX_CLOCK_ROLLBACK_MILLIS = 5000L;
+
   private final int nodeId;
 
-  private long lastTimestamp = -1L;
-  private long sequence = 0L;
+  // (timestamp << SEQUENCE_BITS) | sequence of the last issued id
+  private final AtomicLong state = new AtomicLong(-1L);
 
   // Create SequenceGenerator with a nodeId
   public SequenceGenerator(int nodeId) {
@@ -39,44 +61,65 @@ public class SequenceGenerator {
   }
 
   public long nextId() {
-    long currentTimestamp = timestamp();
+    return toId(reserve(1));
+  }
 
-    synchronized (this) {
-      if (currentTimestamp < lastTimestamp) {
-        throw new IllegalStateException("Invalid System Clock!");
-      }
+  /**
+   * Reserves a block of count consecutive ids in a single atomic step.
+   * Ids within the block are unique and time ordered, as if issued by count consecutive calls to nextId().
+   */
+  public IdBlock nextIds(int count) {
+    if (count < 1 || count > MAX_BLOCK_SIZE) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Id block size must be between %d and %d",
+          1,
+          MAX_BLOCK_SIZE
+        )
+      );
+    }
+    return new IdBlock(this, reserve(count), count);
+  }
 
-      if (currentTimestamp == lastTimestamp) {
-        sequence = (sequence + 1) & maxSequence;
-        if (sequence == 0) {
-          // Sequence Exhausted, wait till next millisecond.
-          currentTimestamp = waitNextMillis(currentTimestamp);
-        }
-      } else {
-        // reset sequence to start with zero for the next millisecond
-        sequence = 0;
+  // Returns the (timestamp << SEQUENCE_BITS) | sequence of the first of count reserved ids
+  private long reserve(int count) {
+    while (true) {
+      final long currentTimestamp = timestamp();
+      final long last = state.get();
+      final long first = Math.max(last + 1, currentTimestamp << SEQUENCE_BITS);
+      final long next = first + count - 1;
+      final long borrowedMillis = (next >>> SEQUENCE_BITS) - currentTimestamp;
+      if (borrowedMillis > MAX_CLOCK_ROLLBACK_MILLIS) {
+        throw new IllegalStateException(
+          String.format(
+            "Ids are %d ms ahead of the system clock, which has likely " +
+            "moved backwards - refusing to generate ids",
+            borrowedMillis
+          )
+        );
       }
-
-      lastTimestamp = currentTimestamp;
+      if (borrowedMillis > MAX_BORROWED_MILLIS) {
+        LockSupport.parkNanos(
+          TimeUnit.MILLISECONDS.toNanos(borrowedMillis - MAX_BORROWED_MILLIS)
+        );
+        continue;
+      }
+      if (state.compareAndSet(last, next)) return first;
     }
+  }
 
-    long id = currentTimestamp << (TOTAL_BITS - EPOCH_BITS);
-    id |= (nodeId << (TOTAL_BITS - EPOCH_BITS - NODE_ID_BITS));
+  long toId(long timestampAndSequence) {
+    final long timestamp = timestampAndSequence >>> SEQUENCE_BITS;
+    final long sequence = timestampAndSequence & maxSequence;
+    long id = timestamp << (TOTAL_BITS - EPOCH_BITS);
+    id |= ((long) nodeId << (TOTAL_BITS - EPOCH_BITS - NODE_ID_BITS));
     id |= sequence;
     return id;
   }
 
   // Get current timestamp in milliseconds, adjust for the custom epoch.
   private static long timestamp() {
-    return Instant.now().toEpochMilli() - CUSTOM_EPOCH;
-  }
-
-  // Block and wait till next millisecond
-  private long waitNextMillis(long currentTimestamp) {
-    while (currentTimestamp == lastTimestamp) {
-      currentTimestamp = timestamp();
-    }
-    return currentTimestamp;
+    return System.currentTimeMillis() - CUSTOM_EPOCH;
   }
 
   private int createNodeId() {
@@ -2,18 +2,30 @@ package dev.sanda.datafi.persistence;
 
 import java.io.Serializable;
 import javax.persistence.Embeddable;
+import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 
+/**
+ * The no-args constructor is used by Hibernate when hydrating loaded rows, and therefore
+ * leaves the id unassigned - new ids are generated via SimpleId.generate().
+ * Equality is by value, as is required of composite identifiers (i.e. for id keyed maps).
+ */
 @lombok.Getter
 @lombok.Setter
+@lombok.EqualsAndHashCode
 @Embeddable
 @NoArgsConstructor
+@AllArgsConstructor
 public class SimpleId implements Serializable {
 
-  private Long id = IdFactory.getNextId();
+  private Long id;
+
+  public static SimpleId generate() {
+    return new SimpleId(IdFactory.getNextId());
+  }
 
   @Override
   public String toString() {
-    return this.id.toString();
+    return String.valueOf(this.id);
   }
 }
@@ -6,8 +6,13 @@ import javax.persistence.MappedSuperclass;
 public abstract class StandardPersistableEntity
   extends BasePersistableEntity<SimpleId> {
 
+  /**
+   * Only invoked when first persisted; ids which have been
+   * assigned beforehand (i.e. via IdFactory.reserve(...)) are kept.
+   */
   @Override
   public void initId() {
-    this.id = new SimpleId();
+    if (this.id == null || this.id.getId() == null) this.id =
+      SimpleId.generate();
   }
 }
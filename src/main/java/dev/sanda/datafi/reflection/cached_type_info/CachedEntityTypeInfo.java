@@ -6,6 +6,9 @@ import static dev.sanda.datafi.reflection.runtime_services.ReflectionCache.getCl
 import dev.sanda.datafi.annotations.attributes.NonApiUpdatable;
 import dev.sanda.datafi.annotations.attributes.NonApiUpdatables;
 import dev.sanda.datafi.annotations.attributes.NonNullable;
+import dev.sanda.datafi.annotations.finders.CacheableEntity;
+import dev.sanda.datafi.annotations.free_text_search.FreeTextSearchDialect;
+import dev.sanda.datafi.annotations.free_text_search.WithFreeTextSearchByFields;
 import dev.sanda.datafi.persistence.Archivable;
 import dev.sanda.datafi.reflection.relationship_synchronization.EntityRelationshipSyncronizer;
 import java.lang.reflect.Constructor;
@@ -36,13 +39,17 @@ public class CachedEntityTypeInfo {
   private List<Field> cascadeUpdatableFields;
   private Map<String, Method> publicMethods;
   private List<String> searchFields;
+  private boolean isSearchIndexed = false;
+  private FreeTextSearchDialect searchDialect = FreeTextSearchDialect.JPQL;
   private boolean isArchivable = false;
+  private CacheableEntity cacheableEntity;
 
   public CachedEntityTypeInfo(
     Class<?> clazz,
     Collection<Field> fields,
     Collection<Method> publicMethods,
-    EntityRelationshipSyncronizer relationshipSyncronizer
+    EntityRelationshipSyncronizer relationshipSyncronizer,
+    Class<?> entityApiSpec
   ) {
     this.relationshipSyncronizer = relationshipSyncronizer;
     sortKeys = new HashSet<>();
@@ -117,6 +124,29 @@ public class CachedEntityTypeInfo {
     );
     this.defaultInstance = genDefaultInstance(clazz);
     setCascadeUpdatableFields();
+    setSearchFields(entityApiSpec);
+    this.cacheableEntity = clazz.getAnnotation(CacheableEntity.class);
+    if (
+      cacheableEntity == null && entityApiSpec != null
+    ) this.cacheableEntity = entityApiSpec.getAnnotation(CacheableEntity.class);
+  }
+
+  private void setSearchFields(Class<?> entityApiSpec) {
+    WithFreeTextSearchByFields freeTextSearchByFields = clazz.getAnnotation(
+      WithFreeTextSearchByFields.class
+    );
+    if (
+      freeTextSearchByFields == null && entityApiSpec != null
+    ) freeTextSearchByFields =
+      entityApiSpec.getAnnotation(WithFreeTextSearchByFields.class);
+    this.searchFields =
+      freeTextSearchByFields != null
+        ? Arrays.asList(freeTextSearchByFields.value())
+        : Collections.emptyList();
+    this.isSearchIndexed =
+      freeTextSearchByFields != null && freeTextSearchByFields.inMemoryIndex();
+    if (freeTextSearchByFields != null) this.searchDialect =
+      freeTextSearchByFields.dialect();
   }
 
   private boolean isEmbeddedOrForeignKey(Field field) {
@@ -0,0 +1,26 @@
+package dev.sanda.datafi.reflection.runtime_services;
+
+import static dev.sanda.datafi.DatafiStaticUtils.toPascalCase;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * Determines how a string based method name passed to DataManager
+ * (i.e. an attribute name, or a custom query name) maps to the
+ * actual name of the method to be invoked.
+ */
+@AllArgsConstructor
+public enum DispatchKind {
+  FIND_BY("findBy", ""),
+  FIND_ALL_BY("findAllBy", "In"),
+  GETTER("get", ""),
+  SETTER("set", ""),
+  METHOD("", "");
+
+  private final String prefix;
+  private final String suffix;
+
+  public String resolverNameFor(String name) {
+    return prefix.isEmpty() ? name : prefix + toPascalCase(name) + suffix;
+  }
+}
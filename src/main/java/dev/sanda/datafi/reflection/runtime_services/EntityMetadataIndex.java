@@ -0,0 +1,22 @@
+package dev.sanda.datafi.reflection.runtime_services;
+
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Generated at compile time by the annotation processor, such that ReflectionCache
+ * needn't scan the classpath for entities and their api specs at startup.
+ */
+@Getter
+@AllArgsConstructor
+public class EntityMetadataIndex {
+
+  private final List<Class<?>> entityTypes;
+
+  /**
+   * Entity types mapped to their @EntityApiSpec extensions, where present.
+   */
+  private final Map<Class<?>, Class<?>> entityApiSpecs;
+}
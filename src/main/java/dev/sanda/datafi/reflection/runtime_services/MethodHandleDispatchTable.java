@@ -0,0 +1,129 @@
+package dev.sanda.datafi.reflection.runtime_services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.function.Function;
+import javax.annotation.PostConstruct;
+import org.apache.commons.lang3.ClassUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Thread safe, bounded cache of the methods DataManager invokes by name -
+ * i.e. the generated findBy / findAllBy / findByUnique resolvers, custom queries,
+ * free text search, and entity getters / setters.
+ * Each method is resolved once per (owner type, dispatch kind, name, parameter types)
+ * and stored as a MethodHandle adapted to a uniform (Object, Object[])Object signature,
+ * so that subsequent calls neither build resolver names nor go through Method.invoke.
+ */
+@Component
+public class MethodHandleDispatchTable {
+
+  private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+  private static final MethodType dispatchType = MethodType.methodType(
+    Object.class,
+    Object.class,
+    Object[].class
+  );
+  private static final Class<?>[] noParams = new Class<?>[0];
+  private static final Object[] noArgs = new Object[0];
+
+  @Value("${datafi.dispatch-cache.max-size:2048}")
+  private long maxSize;
+
+  private Cache<DispatchKey, MethodHandle> handles;
+  private final Function<DispatchKey, MethodHandle> resolver = this::resolve;
+
+  @PostConstruct
+  private void init() {
+    handles = Caffeine.newBuilder().maximumSize(maxSize).build();
+  }
+
+  public Object invoke(
+    DispatchKind kind,
+    String name,
+    Class<?>[] params,
+    Object instance,
+    Object... args
+  ) {
+    final MethodHandle handle = handles.get(
+      new DispatchKey(instance.getClass(), kind, name, params),
+      resolver
+    );
+    try {
+      return (Object) handle.invokeExact(instance, args);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Throwable throwable) {
+      throw new RuntimeException(throwable);
+    }
+  }
+
+  public Object invokeGetter(String fieldName, Object instance) {
+    return invoke(DispatchKind.GETTER, fieldName, noParams, instance, noArgs);
+  }
+
+  public void invokeSetter(String fieldName, Object instance, Object value) {
+    invoke(DispatchKind.SETTER, fieldName, noParams, instance, value);
+  }
+
+  private MethodHandle resolve(DispatchKey key) {
+    final String resolverName = key.getKind().resolverNameFor(key.getName());
+    try {
+      Method method = key.getKind() == DispatchKind.SETTER
+        ? findSetter(key.getOwner(), resolverName)
+        : findMethod(key.getOwner(), resolverName, key.getParams());
+      if (
+        !Modifier.isPublic(method.getDeclaringClass().getModifiers())
+      ) method.setAccessible(true);
+      return lookup
+        .unreflect(method)
+        .asSpreader(Object[].class, method.getParameterCount())
+        .asType(dispatchType);
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // spring data repositories are jdk proxies, whose classes are not accessible
+  // from outside the jdk - so resolve the method from the proxied interface instead.
+  private static Method findMethod(
+    Class<?> owner,
+    String name,
+    Class<?>[] params
+  ) throws NoSuchMethodException {
+    if (Proxy.isProxyClass(owner)) {
+      for (Class<?> proxiedInterface : ClassUtils.getAllInterfaces(owner)) {
+        try {
+          return proxiedInterface.getMethod(name, params);
+        } catch (NoSuchMethodException ignored) {}
+      }
+    }
+    return owner.getMethod(name, params);
+  }
+
+  private static Method findSetter(Class<?> owner, String name)
+    throws NoSuchMethodException {
+    for (Method method : owner.getMethods()) {
+      if (
+        method.getName().equals(name) && method.getParameterCount() == 1
+      ) return method;
+    }
+    throw new NoSuchMethodException(owner.getName() + "." + name);
+  }
+
+  @lombok.Value
+  private static class DispatchKey {
+
+    Class<?> owner;
+    DispatchKind kind;
+    String name;
+    Class<?>[] params;
+  }
+}
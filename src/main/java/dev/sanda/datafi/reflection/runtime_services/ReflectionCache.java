@@ -8,6 +8,8 @@ import dev.sanda.datafi.annotations.EntityApiSpec;
 import dev.sanda.datafi.code_generator.BasePackageResolver;
 import dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo;
 import dev.sanda.datafi.reflection.relationship_synchronization.EntityRelationshipSyncronizer;
+import dev.sanda.datafi.service.CascadeUpdater;
+import dev.sanda.datafi.service.RelationshipSynchronizer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.*;
@@ -18,6 +20,7 @@ import javax.persistence.Entity;
 import javax.persistence.Table;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.val;
 import org.reflections.Reflections;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -25,27 +28,66 @@ import org.springframework.stereotype.Component;
 @Component
 public class ReflectionCache {
 
-  private Reflections reflections;
-
   @Getter
   private Map<String, CachedEntityTypeInfo> entitiesCache;
 
-  @Getter
-  private Map<Map.Entry<String, Class<?>[]>, Method> resolversCache;
-
   @Autowired
   private CollectionsTypeResolver collectionsTypeResolver;
 
   @Autowired
   private BasePackageResolver basePackageResolver;
 
+  @Autowired(required = false)
+  private List<CascadeUpdater<?>> generatedCascadeUpdaters;
+
+  @Autowired(required = false)
+  private List<EntityMetadataIndex> entityMetadataIndexes;
+
+  @Autowired(required = false)
+  private List<RelationshipSynchronizer<?>> generatedRelationshipSynchronizers;
+
+  private Map<Class<?>, CascadeUpdater<?>> cascadeUpdaters;
+
+  private Map<Class<?>, RelationshipSynchronizer<?>> relationshipSynchronizers;
+
   @PostConstruct
   private void init() {
-    reflections = new Reflections(basePackageResolver.getBasePackages());
     entitiesCache = new HashMap<>();
-    resolversCache = new HashMap<>();
-    Set<Class<?>> dataModelEntityTypes = getAnnotatedEntities();
-    Map<Class<?>, Class<?>> dataModelEntityTypeApiSpecs = getAnnotatedEntityTypeApiSpecs();
+    cascadeUpdaters = new HashMap<>();
+    if (generatedCascadeUpdaters != null) generatedCascadeUpdaters.forEach(
+      updater -> cascadeUpdaters.put(updater.getEntityType(), updater)
+    );
+    relationshipSynchronizers = new HashMap<>();
+    if (
+      generatedRelationshipSynchronizers != null
+    ) generatedRelationshipSynchronizers.forEach(
+      synchronizer ->
+        relationshipSynchronizers.put(
+          synchronizer.getEntityType(),
+          synchronizer
+        )
+    );
+    final Set<Class<?>> dataModelEntityTypes = new HashSet<>();
+    final Map<Class<?>, Class<?>> dataModelEntityTypeApiSpecs =
+      new HashMap<>();
+    if (entityMetadataIndexes != null) {
+      for (EntityMetadataIndex index : entityMetadataIndexes) {
+        dataModelEntityTypes.addAll(index.getEntityTypes());
+        dataModelEntityTypeApiSpecs.putAll(index.getEntityApiSpecs());
+      }
+    }
+    // packages without a generated index (e.g. compiled without the
+    // annotation processor) still have to be scanned
+    final String[] unindexedPackages = unindexedPackagesOf(
+      dataModelEntityTypes
+    );
+    if (unindexedPackages.length > 0) {
+      val reflections = new Reflections((Object[]) unindexedPackages);
+      dataModelEntityTypes.addAll(getAnnotatedEntities(reflections));
+      dataModelEntityTypeApiSpecs.putAll(
+        getAnnotatedEntityTypeApiSpecs(reflections)
+      );
+    }
     for (Class<?> currentType : dataModelEntityTypes) {
       if (isPersistableEntity(currentType)) entitiesCache.put(
         currentType.getSimpleName(),
@@ -57,12 +99,36 @@ public class ReflectionCache {
             currentType,
             dataModelEntityTypeApiSpecs.get(currentType),
             collectionsTypeResolver
-          )
+          ),
+          dataModelEntityTypeApiSpecs.get(currentType)
         )
       );
     }
   }
 
+  /**
+   * @return the base packages which don't contain any of the given (indexed) entity types,
+   * either directly or within a sub package.
+   */
+  private String[] unindexedPackagesOf(Set<Class<?>> indexedEntityTypes) {
+    // "com.example.model." for com.example.model.Person
+    final Set<String> indexedPackagePrefixes = indexedEntityTypes
+      .stream()
+      .map(Class::getName)
+      .map(name -> name.substring(0, name.lastIndexOf('.') + 1))
+      .collect(Collectors.toSet());
+    return basePackageResolver
+      .getBasePackages()
+      .stream()
+      .filter(
+        basePackage ->
+          indexedPackagePrefixes
+            .stream()
+            .noneMatch(prefix -> prefix.startsWith(basePackage + "."))
+      )
+      .toArray(String[]::new);
+  }
+
   private boolean isPersistableEntity(Class<?> currentType) {
     return (
       currentType.isAnnotationPresent(Table.class) ||
@@ -70,7 +136,7 @@ public class ReflectionCache {
     );
   }
 
-  private Set<Class<?>> getAnnotatedEntities() {
+  private Set<Class<?>> getAnnotatedEntities(Reflections reflections) {
     Set<Class<?>> entities = reflections.getTypesAnnotatedWith(Entity.class);
     entities.addAll(reflections.getTypesAnnotatedWith(Table.class));
     entities = Sets.newHashSet(entities);
@@ -78,7 +144,9 @@ public class ReflectionCache {
   }
 
   @SuppressWarnings("unchecked")
-  private Map<Class<?>, Class<?>> getAnnotatedEntityTypeApiSpecs() {
+  private Map<Class<?>, Class<?>> getAnnotatedEntityTypeApiSpecs(
+    Reflections reflections
+  ) {
     return reflections
       .getTypesAnnotatedWith(EntityApiSpec.class)
       .stream()
@@ -115,6 +183,28 @@ public class ReflectionCache {
     return currentClassFields;
   }
 
+  /**
+   * @return the compile time generated cascade updater for the given entity type,
+   * or null if none was generated - in which case reflection is to be used instead.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CascadeUpdater<T> getCascadeUpdater(Class<T> entityType) {
+    return (CascadeUpdater<T>) cascadeUpdaters.get(entityType);
+  }
+
+  /**
+   * @return the compile time generated relationship synchronizer for the given entity type,
+   * or null if none was generated - in which case the reflection based EntityRelationshipSyncronizer is to be used instead.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> RelationshipSynchronizer<T> getRelationshipSynchronizer(
+    Class<T> entityType
+  ) {
+    return (RelationshipSynchronizer<T>) relationshipSynchronizers.get(
+      entityType
+    );
+  }
+
   public Object getIdOf(String clazzName, Object instance) {
     return entitiesCache.get(clazzName).getId(instance);
   }
@@ -0,0 +1,82 @@
+package dev.sanda.datafi.search;
+
+import static dev.sanda.datafi.DatafiStaticUtils.getValueAtPath;
+
+import dev.sanda.datafi.persistence.Archivable;
+import dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+
+/**
+ * The trigram index of a single entity type, along with its build state. Until the initial build has
+ * completed, the ids of entities written in the meantime are tracked, so that the build (which reads
+ * an older snapshot) does not overwrite their more recent values.
+ */
+class EntitySearchIndex {
+
+  @Getter
+  private final CachedEntityTypeInfo entityTypeInfo;
+
+  private final TrigramIndex trigramIndex = new TrigramIndex();
+  private final Set<Object> modifiedDuringBuild = ConcurrentHashMap.newKeySet();
+
+  @Getter
+  private volatile boolean isReady = false;
+
+  EntitySearchIndex(CachedEntityTypeInfo entityTypeInfo) {
+    this.entityTypeInfo = entityTypeInfo;
+  }
+
+  synchronized void onSaved(Object entity) {
+    final Object id = entityTypeInfo.getId(entity);
+    if (!isReady) modifiedDuringBuild.add(id);
+    if (isArchived(entity)) trigramIndex.remove(id); else trigramIndex.put(
+      id,
+      searchValuesOf(entity)
+    );
+  }
+
+  synchronized void onDeleted(Object id) {
+    if (!isReady) modifiedDuringBuild.add(id);
+    trigramIndex.remove(id);
+  }
+
+  synchronized void addIfUnmodified(Object entity) {
+    final Object id = entityTypeInfo.getId(entity);
+    if (
+      !modifiedDuringBuild.contains(id) && !isArchived(entity)
+    ) trigramIndex.put(id, searchValuesOf(entity));
+  }
+
+  synchronized void markReady() {
+    isReady = true;
+    modifiedDuringBuild.clear();
+  }
+
+  int size() {
+    return trigramIndex.size();
+  }
+
+  List<Object> search(String term) {
+    return trigramIndex.search(term);
+  }
+
+  private String[] searchValuesOf(Object entity) {
+    final List<String> searchFields = entityTypeInfo.getSearchFields();
+    final String[] values = new String[searchFields.size()];
+    for (int i = 0; i < values.length; i++) {
+      final Object value = getValueAtPath(entity, searchFields.get(i));
+      values[i] = value != null ? value.toString() : null;
+    }
+    return values;
+  }
+
+  private static boolean isArchived(Object entity) {
+    return (
+      entity instanceof Archivable &&
+      Boolean.TRUE.equals(((Archivable) entity).getIsArchived())
+    );
+  }
+}
@@ -0,0 +1,235 @@
+package dev.sanda.datafi.search;
+
+import dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo;
+import dev.sanda.datafi.reflection.runtime_services.ReflectionCache;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import javax.persistence.EmbeddedId;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Maintains an in memory trigram index for each entity annotated with
+ * {@code @WithFreeTextSearchByFields(value = {...}, inMemoryIndex = true)}.
+ * Indexes are built in the background once the application has started - reading all
+ * rows in batches of datafi.search-index.build-batch-size, ordered by id - and are kept up to date
+ * by hibernate post commit insert / update / delete listeners. Bulk deletes bypass these listeners,
+ * and are therefore reported by DataManager via onBulkDeleted(...) / onAllDeleted(...).
+ * Until an index is ready, searches fall back to the database.
+ */
+@Slf4j
+@Component
+public class FreeTextSearchIndexes {
+
+  @Autowired
+  private ReflectionCache reflectionCache;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Value("${datafi.search-index.build-batch-size:10000}")
+  private int buildBatchSize;
+
+  private final Map<Class<?>, EntitySearchIndex> indexes =
+    new ConcurrentHashMap<>();
+
+  @PostConstruct
+  private void init() {
+    for (CachedEntityTypeInfo entityTypeInfo : reflectionCache
+      .getEntitiesCache()
+      .values()) {
+      if (!entityTypeInfo.isSearchIndexed()) continue;
+      if (
+        entityTypeInfo.getIdField().isAnnotationPresent(EmbeddedId.class)
+      ) {
+        log.warn(
+          "In memory search index is not supported for {}, as it has a composite id",
+          entityTypeInfo.getClazz().getSimpleName()
+        );
+        continue;
+      }
+      indexes.put(
+        entityTypeInfo.getClazz(),
+        new EntitySearchIndex(entityTypeInfo)
+      );
+    }
+    if (indexes.isEmpty()) return;
+    final EventListenerRegistry listenerRegistry = entityManagerFactory
+      .unwrap(SessionFactoryImplementor.class)
+      .getServiceRegistry()
+      .getService(EventListenerRegistry.class);
+    final SearchIndexEventListener listener = new SearchIndexEventListener(
+      this
+    );
+    listenerRegistry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+    listenerRegistry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+    listenerRegistry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void buildIndexes() {
+    if (indexes.isEmpty()) return;
+    buildInBackground(new ArrayList<>(indexes.values()));
+  }
+
+  /**
+   * Removes the given ids from the index of the given entity type once the surrounding transaction
+   * (if any) has committed.
+   */
+  public void onBulkDeleted(Class<?> entityType, Collection<Object> ids) {
+    if (indexOf(entityType) == null) return;
+    afterCommit(
+      () -> {
+        final EntitySearchIndex index = indexOf(entityType);
+        if (index != null) ids.forEach(index::onDeleted);
+      }
+    );
+  }
+
+  /**
+   * Replaces the index of the given entity type with a newly built one once the surrounding
+   * transaction (if any) has committed. Searches go to the database until the new index is ready.
+   */
+  public void onAllDeleted(Class<?> entityType) {
+    if (indexOf(entityType) == null) return;
+    afterCommit(
+      () -> {
+        final EntitySearchIndex index = indexOf(entityType);
+        if (index == null) return;
+        final EntitySearchIndex newIndex = new EntitySearchIndex(
+          index.getEntityTypeInfo()
+        );
+        indexes.put(index.getEntityTypeInfo().getClazz(), newIndex);
+        buildInBackground(Collections.singletonList(newIndex));
+      }
+    );
+  }
+
+  private void buildInBackground(List<EntitySearchIndex> toBuild) {
+    final Thread builder = new Thread(
+      () -> toBuild.forEach(this::build),
+      "datafi-search-index-builder"
+    );
+    builder.setDaemon(true);
+    builder.start();
+  }
+
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+      new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      }
+    );
+  }
+
+  /**
+   * @return the ids of the entities of the given type whose search fields contain the given term,
+   * or null if the search cannot be served from memory - i.e. the entity type is not indexed,
+   * its index is still being built, the term is too short to be looked up by trigram, or the term
+   * contains LIKE wildcards.
+   */
+  public List<Object> search(Class<?> entityType, String term) {
+    final EntitySearchIndex index = indexes.get(entityType);
+    if (
+      index == null ||
+      !index.isReady() ||
+      term.length() < TrigramIndex.MIN_TERM_LENGTH ||
+      hasLikeWildcards(term)
+    ) return null;
+    return index.search(term);
+  }
+
+  // the index matches '%' and '_' literally, whereas the JPQL query treats them as wildcards
+  private static boolean hasLikeWildcards(String term) {
+    return term.indexOf('%') >= 0 || term.indexOf('_') >= 0;
+  }
+
+  EntitySearchIndex indexOf(Class<?> entityType) {
+    for (
+      Class<?> type = entityType;
+      type != null;
+      type = type.getSuperclass()
+    ) {
+      final EntitySearchIndex index = indexes.get(type);
+      if (index != null) return index;
+    }
+    return null;
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private void build(EntitySearchIndex index) {
+    final long start = System.currentTimeMillis();
+    final CachedEntityTypeInfo entityTypeInfo = index.getEntityTypeInfo();
+    final Class entityType = entityTypeInfo.getClazz();
+    final String idName = entityTypeInfo.getIdField().getName();
+    try {
+      Object lastId = null;
+      boolean hasNext = true;
+      while (hasNext) {
+        final EntityManager entityManager =
+          entityManagerFactory.createEntityManager();
+        try {
+          CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+          CriteriaQuery query = criteriaBuilder.createQuery(entityType);
+          Root root = query.from(entityType);
+          Path idPath = root.get(idName);
+          query.select(root).orderBy(criteriaBuilder.asc(idPath));
+          if (lastId != null) query.where(
+            criteriaBuilder.greaterThan(idPath, (Comparable) lastId)
+          );
+          final List<Object> batch = entityManager
+            .createQuery(query)
+            .setHint("org.hibernate.readOnly", true)
+            .setMaxResults(buildBatchSize)
+            .getResultList();
+          batch.forEach(index::addIfUnmodified);
+          hasNext = batch.size() == buildBatchSize;
+          if (hasNext) lastId =
+            entityTypeInfo.getId(batch.get(batch.size() - 1));
+        } finally {
+          entityManager.close();
+        }
+      }
+      index.markReady();
+      log.info(
+        "Built in memory search index for {} ({} entries) in {} ms",
+        entityType.getSimpleName(),
+        index.size(),
+        System.currentTimeMillis() - start
+      );
+    } catch (RuntimeException e) {
+      log.error(
+        "Failed to build in memory search index for {}, searches will keep going to the database",
+        entityType.getSimpleName(),
+        e
+      );
+    }
+  }
+}
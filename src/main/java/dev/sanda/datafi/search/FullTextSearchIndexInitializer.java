@@ -0,0 +1,49 @@
+package dev.sanda.datafi.search;
+
+import java.io.IOException;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Executes the full text index DDL generated for entities with a native free text search dialect
+ * (META-INF/datafi/full-text-search/{dialect}/{Entity}.sql) once the schema has been created.
+ * Intended for development and tests - production schemas should include the generated DDL in their migrations.
+ * Statements which fail (i.e. because the index already exists) are skipped.
+ * Enabled by setting datafi.full-text-search.create-indexes=true.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(
+  name = "datafi.full-text-search.create-indexes",
+  havingValue = "true"
+)
+public class FullTextSearchIndexInitializer {
+
+  //injected so as to ensure the schema has been created beforehand
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private DataSource dataSource;
+
+  @PostConstruct
+  private void createIndexes() throws IOException {
+    final Resource[] scripts = new PathMatchingResourcePatternResolver()
+      .getResources("classpath*:META-INF/datafi/full-text-search/*/*.sql");
+    if (scripts.length == 0) return;
+    final ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+      scripts
+    );
+    populator.setContinueOnError(true);
+    populator.execute(dataSource);
+    log.info("Executed {} full text search index scripts", scripts.length);
+  }
+}
@@ -0,0 +1,62 @@
+package dev.sanda.datafi.search;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Keeps the in memory search indexes in sync with committed inserts, updates and deletes.
+ */
+@RequiredArgsConstructor
+class SearchIndexEventListener
+  implements
+    PostCommitInsertEventListener,
+    PostCommitUpdateEventListener,
+    PostCommitDeleteEventListener {
+
+  private final FreeTextSearchIndexes searchIndexes;
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    final EntitySearchIndex index = searchIndexes.indexOf(
+      event.getEntity().getClass()
+    );
+    if (index != null) index.onSaved(event.getEntity());
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    final EntitySearchIndex index = searchIndexes.indexOf(
+      event.getEntity().getClass()
+    );
+    if (index != null) index.onSaved(event.getEntity());
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    final EntitySearchIndex index = searchIndexes.indexOf(
+      event.getEntity().getClass()
+    );
+    if (index != null) index.onDeleted(event.getId());
+  }
+
+  //nothing has changed if the transaction did not commit
+  @Override
+  public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+  @Override
+  public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+  @Override
+  public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+
+  @Override
+  public boolean requiresPostCommitHanding(EntityPersister persister) {
+    return requiresPostCommitHandling(persister);
+  }
+
+  // the correctly spelled replacement of the above - not declared by all supported hibernate versions
+  public boolean requiresPostCommitHandling(EntityPersister persister) {
+    return searchIndexes.indexOf(persister.getMappedClass()) != null;
+  }
+}
@@ -0,0 +1,109 @@
+package dev.sanda.datafi.search;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In memory trigram inverted index over the (lower cased) search field values of a single entity type.
+ * Each trigram is packed into a long and mapped to the ids of the entities whose values contain it.
+ * A search intersects the posting sets of the search term's trigrams - starting with the smallest -
+ * and then verifies each candidate against its stored values, so results match those of a
+ * "lower(field) LIKE %term%" query exactly - for terms without '%' or '_' wildcards, which are
+ * matched literally here.
+ * Reads are lock free, writes are serialized.
+ */
+public class TrigramIndex {
+
+  public static final int MIN_TERM_LENGTH = 3;
+
+  private final Map<Long, Set<Object>> postings = new ConcurrentHashMap<>();
+  private final Map<Object, String[]> documents = new ConcurrentHashMap<>();
+
+  public synchronized void put(Object id, String[] values) {
+    remove(id);
+    final String[] lowerCaseValues = new String[values.length];
+    for (int i = 0; i < values.length; i++) lowerCaseValues[i] =
+      values[i] != null ? values[i].toLowerCase(Locale.ROOT) : null;
+    documents.put(id, lowerCaseValues);
+    for (long trigram : trigramsOf(lowerCaseValues)) postings
+      .computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet())
+      .add(id);
+  }
+
+  public synchronized void remove(Object id) {
+    final String[] values = documents.remove(id);
+    if (values == null) return;
+    for (long trigram : trigramsOf(values)) postings.computeIfPresent(
+      trigram,
+      (key, ids) -> {
+        ids.remove(id);
+        return ids.isEmpty() ? null : ids;
+      }
+    );
+  }
+
+  public int size() {
+    return documents.size();
+  }
+
+  /**
+   * @return the ids of all entities with at least one search field value containing the given term
+   * (case insensitive), in no particular order.
+   * @throws IllegalArgumentException if the term is shorter than MIN_TERM_LENGTH
+   */
+  public List<Object> search(String term) {
+    if (term.length() < MIN_TERM_LENGTH) throw new IllegalArgumentException(
+      "Search term must be at least " + MIN_TERM_LENGTH + " characters long"
+    );
+    final String lowerCaseTerm = term.toLowerCase(Locale.ROOT);
+    final List<Set<Object>> candidateSets = new ArrayList<>();
+    for (long trigram : trigramsOf(lowerCaseTerm)) {
+      final Set<Object> ids = postings.get(trigram);
+      if (ids == null) return new ArrayList<>();
+      candidateSets.add(ids);
+    }
+    candidateSets.sort(Comparator.comparingInt(Set::size));
+    final Set<Object> smallest = candidateSets.get(0);
+    final List<Set<Object>> others = candidateSets.subList(
+      1,
+      candidateSets.size()
+    );
+    final List<Object> result = new ArrayList<>();
+    for (Object id : smallest) {
+      if (!containsInAll(others, id)) continue;
+      final String[] values = documents.get(id);
+      if (values != null && anyContains(values, lowerCaseTerm)) result.add(id);
+    }
+    return result;
+  }
+
+  private static boolean containsInAll(List<Set<Object>> sets, Object id) {
+    for (Set<Object> set : sets) if (!set.contains(id)) return false;
+    return true;
+  }
+
+  private static boolean anyContains(String[] values, String term) {
+    for (String value : values) if (
+      value != null && value.contains(term)
+    ) return true;
+    return false;
+  }
+
+  private static Set<Long> trigramsOf(String[] values) {
+    final Set<Long> result = new HashSet<>();
+    for (String value : values) if (value != null) result.addAll(
+      trigramsOf(value)
+    );
+    return result;
+  }
+
+  private static Set<Long> trigramsOf(String value) {
+    final Set<Long> result = new HashSet<>();
+    for (int i = 0; i + MIN_TERM_LENGTH <= value.length(); i++) result.add(
+      ((long) value.charAt(i) << 32) |
+      ((long) value.charAt(i + 1) << 16) |
+      value.charAt(i + 2)
+    );
+    return result;
+  }
+}
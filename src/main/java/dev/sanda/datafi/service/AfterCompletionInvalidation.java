@@ -0,0 +1,49 @@
+package dev.sanda.datafi.service;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers the invalidation of a cache's entries for an entity type until the current transaction has completed.
+ * A single synchronization is registered per cache and transaction, which invalidates each entity type written
+ * to by the transaction once - rather than one synchronization per write.
+ */
+final class AfterCompletionInvalidation {
+
+  private AfterCompletionInvalidation() {}
+
+  /**
+   * @param cache the cache to be invalidated - also serves as the key of its transaction bound entity types
+   * @param invalidation invalidates the cache's entries for a given entity type
+   */
+  @SuppressWarnings("unchecked")
+  static void register(
+    Object cache,
+    Class<?> entityType,
+    Consumer<Class<?>> invalidation
+  ) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+    final Set<Class<?>> entityTypes = (Set<Class<?>>) TransactionSynchronizationManager.getResource(
+      cache
+    );
+    if (entityTypes != null) {
+      entityTypes.add(entityType);
+      return;
+    }
+    final Set<Class<?>> newEntityTypes = new LinkedHashSet<>();
+    newEntityTypes.add(entityType);
+    TransactionSynchronizationManager.bindResource(cache, newEntityTypes);
+    TransactionSynchronizationManager.registerSynchronization(
+      new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(cache);
+          newEntityTypes.forEach(invalidation);
+        }
+      }
+    );
+  }
+}
@@ -0,0 +1,85 @@
+package dev.sanda.datafi.service;
+
+import dev.sanda.datafi.persistence.GenericDao;
+import java.util.*;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Tracks the entity graph visited by a single cascadeUpdate(...) or cascadeUpdateCollection(...) call.
+ * Entities currently being updated (i.e. the current recursion path) are tracked by identity in order
+ * to guard against cycles between nested entities - an entity shared between several owners is
+ * therefore still updated from each owner's source.
+ * When deferred, dirty entities are collected rather than saved, grouped by entity type
+ * (in the order in which each type was first encountered, i.e nested types before their owners),
+ * and written in one go by flush(...).
+ */
+@RequiredArgsConstructor
+class CascadeUnitOfWork {
+
+  private final boolean isDeferred;
+  private final Set<Object> inProgress = Collections.newSetFromMap(
+    new IdentityHashMap<>()
+  );
+  private final Set<Object> registered = Collections.newSetFromMap(
+    new IdentityHashMap<>()
+  );
+  private final Map<Class<?>, List<Object>> dirtyEntitiesByType = new LinkedHashMap<>();
+  private final Map<Object, Object> mergedEntities = new IdentityHashMap<>();
+
+  boolean isDeferred() {
+    return isDeferred;
+  }
+
+  /**
+   * @return false if the given entity is already being updated further up the current path.
+   */
+  boolean enter(Object entity) {
+    return inProgress.add(entity);
+  }
+
+  void leave(Object entity) {
+    inProgress.remove(entity);
+  }
+
+  void registerDirty(Object entity) {
+    if (!registered.add(entity)) return;
+    dirtyEntitiesByType
+      .computeIfAbsent(entity.getClass(), type -> new ArrayList<>())
+      .add(entity);
+  }
+
+  /**
+   * Saves all detached dirty entities via a single saveAll(...) per entity type - managed
+   * entities need no merge, as they are picked up by dirty checking - and then flushes once,
+   * such that hibernate can batch the resulting statements.
+   */
+  void flush(
+    Function<Class<?>, GenericDao> daoResolver,
+    EntityManager entityManager
+  ) {
+    dirtyEntitiesByType.forEach(
+      (type, entities) -> {
+        List<Object> detached = new ArrayList<>();
+        for (Object entity : entities) if (
+          !entityManager.contains(entity)
+        ) detached.add(entity);
+        if (detached.isEmpty()) return;
+        List<Object> merged = daoResolver.apply(type).saveAll(detached);
+        for (int i = 0; i < detached.size(); i++) mergedEntities.put(
+          detached.get(i),
+          merged.get(i)
+        );
+      }
+    );
+    entityManager.flush();
+  }
+
+  /**
+   * @return the managed instance corresponding to the given entity after flush(...).
+   */
+  Object resolve(Object entity) {
+    return mergedEntities.getOrDefault(entity, entity);
+  }
+}
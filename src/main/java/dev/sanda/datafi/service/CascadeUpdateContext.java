@@ -0,0 +1,15 @@
+package dev.sanda.datafi.service;
+
+public interface CascadeUpdateContext {
+  <E> E defaultInstanceOf(Class<E> type);
+
+  void fieldChanged(Object entity, String fieldName);
+
+  void cascadeUpdateNested(
+    Object owner,
+    String fieldName,
+    Class<?> fieldType,
+    Object toUpdate,
+    Object source
+  );
+}
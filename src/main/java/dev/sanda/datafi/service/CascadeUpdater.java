@@ -0,0 +1,18 @@
+package dev.sanda.datafi.service;
+
+/**
+ * Implemented by the per-entity cascade updaters which are generated at compile time.
+ * Copies all non null, api updatable field values which differ between source and toUpdate
+ * using plain field / accessor access, and delegates nested (@OneToOne / @ManyToOne) entities
+ * back to the DataManager via the given context.
+ *
+ * @param <T> the entity type
+ */
+public interface CascadeUpdater<T> {
+  Class<T> getEntityType();
+
+  /**
+   * @return whether any field of toUpdate itself has been changed.
+   */
+  boolean cascadeUpdate(T toUpdate, T source, CascadeUpdateContext context);
+}
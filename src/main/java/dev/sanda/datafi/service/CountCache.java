@@ -0,0 +1,83 @@
+package dev.sanda.datafi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional cache of the total counts reported by paginated DataManager queries, such that navigating
+ * between the pages of the same query does not re-run its count query for every page.
+ * Counts are cached per entity type and query, expire after datafi.count-cache.ttl-seconds,
+ * and are invalidated whenever an entity of that type is written via a DataManager - both immediately
+ * and once the surrounding transaction (if any) has completed, such that counts taken by concurrent
+ * queries in the meantime are not cached past the commit.
+ * Disabled unless datafi.count-cache.enabled is set to true.
+ */
+@Component
+public class CountCache {
+
+  @Value("#{new Boolean('${datafi.count-cache.enabled:false}')}")
+  private Boolean isEnabled;
+
+  @Value("${datafi.count-cache.ttl-seconds:30}")
+  private long ttlSeconds;
+
+  @Value("${datafi.count-cache.max-size:1000}")
+  private long maxSize;
+
+  private final Map<Class<?>, Cache<Object, Long>> counts = new ConcurrentHashMap<>();
+  private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  public boolean isEnabled() {
+    return isEnabled;
+  }
+
+  /**
+   * @param queryKey identifies the query and its arguments - must implement equals() and hashCode()
+   * @param counter runs the count query, if there is no cached count
+   */
+  public long get(Class<?> entityType, Object queryKey, LongSupplier counter) {
+    if (!isEnabled) return counter.getAsLong();
+    final Cache<Object, Long> cache = counts.computeIfAbsent(
+      entityType,
+      type -> newCache()
+    );
+    final long generation = generationOf(entityType).get();
+    final long count = cache.get(queryKey, key -> counter.getAsLong());
+    // the entity type has been written to while counting - the count may already be stale
+    if (generationOf(entityType).get() != generation) cache.invalidate(
+      queryKey
+    );
+    return count;
+  }
+
+  public void invalidate(Class<?> entityType) {
+    if (!isEnabled) return;
+    invalidateNow(entityType);
+    AfterCompletionInvalidation.register(this, entityType, this::invalidateNow);
+  }
+
+  private void invalidateNow(Class<?> entityType) {
+    generationOf(entityType).incrementAndGet();
+    final Cache<Object, Long> entityCounts = counts.get(entityType);
+    if (entityCounts != null) entityCounts.invalidateAll();
+  }
+
+  private AtomicLong generationOf(Class<?> entityType) {
+    return generations.computeIfAbsent(entityType, type -> new AtomicLong());
+  }
+
+  private Cache<Object, Long> newCache() {
+    return Caffeine
+      .newBuilder()
+      .maximumSize(maxSize)
+      .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+      .build();
+  }
+}
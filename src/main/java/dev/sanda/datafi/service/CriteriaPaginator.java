@@ -0,0 +1,184 @@
+package dev.sanda.datafi.service;
+
+import static dev.sanda.datafi.DatafiStaticUtils.getValueAtPath;
+
+import dev.sanda.datafi.dto.Page;
+import dev.sanda.datafi.dto.PageRequest;
+import dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EmbeddedId;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.*;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+/**
+ * Executes paginated criteria queries which avoid the count query spring data runs for each Page:
+ * <p>
+ * - fetchKeysetPage(...) executes keyset (a.k.a seek) paginated queries. Rather than having the database
+ * scan and discard the first pageNumber * pageSize rows, each page is fetched with a
+ * "WHERE (sortKey, id) > (:lastSortKey, :lastId) ORDER BY sortKey, id LIMIT pageSize + 1" query,
+ * where the last sort key and id are taken from the previous page's cursor. Given an index on (sortKey, id),
+ * page latency is therefore independent of page depth.
+ * Sort keys must be non nullable, and entities with composite (@EmbeddedId) ids are not supported.
+ * <p>
+ * - fetchSlice(...) executes offset paginated queries, fetching pageSize + 1 rows in order to
+ * determine whether there is a next page.
+ */
+@RequiredArgsConstructor
+class CriteriaPaginator<T> {
+
+  @NonNull
+  private final EntityManager entityManager;
+
+  @NonNull
+  private final Class<T> clazz;
+
+  @NonNull
+  private final CachedEntityTypeInfo entityTypeInfo;
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  Page<T> fetchKeysetPage(
+    Specification<T> specification,
+    PageRequest request
+  ) {
+    final Integer pageSize = request.getPageSize();
+    if (pageSize == null || pageSize <= 0) throw new IllegalArgumentException(
+      "Invalid page size"
+    );
+    final Field idField = entityTypeInfo.getIdField();
+    if (
+      idField.isAnnotationPresent(EmbeddedId.class)
+    ) throw new IllegalArgumentException(
+      "Keyset paging is not supported for " +
+      clazz.getSimpleName() +
+      " as it has a composite id"
+    );
+    final String sortBy = request.getSortBy();
+    final boolean isAscending =
+      request.getSortDirection() != Sort.Direction.DESC;
+
+    CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<T> query = criteriaBuilder.createQuery(clazz);
+    Root<T> root = query.from(clazz);
+    Path idPath = root.get(idField.getName());
+    Path sortPath = sortBy != null ? resolvePath(root, sortBy) : null;
+
+    List<Predicate> predicates = new ArrayList<>();
+    addSpecification(specification, root, query, criteriaBuilder, predicates);
+    if (request.getCursor() != null) {
+      KeysetCursor cursor = KeysetCursor.decode(
+        request.getCursor(),
+        sortPath != null ? sortPath.getJavaType() : null,
+        idPath.getJavaType()
+      );
+      Predicate afterId = isAscending
+        ? criteriaBuilder.greaterThan(idPath, (Comparable) cursor.getId())
+        : criteriaBuilder.lessThan(idPath, (Comparable) cursor.getId());
+      if (sortPath == null) predicates.add(afterId); else {
+        Comparable sortValue = (Comparable) cursor.getSortValue();
+        predicates.add(
+          criteriaBuilder.or(
+            isAscending
+              ? criteriaBuilder.greaterThan(sortPath, sortValue)
+              : criteriaBuilder.lessThan(sortPath, sortValue),
+            criteriaBuilder.and(
+              criteriaBuilder.equal(sortPath, sortValue),
+              afterId
+            )
+          )
+        );
+      }
+    }
+    List<Order> orders = new ArrayList<>();
+    if (sortPath != null) orders.add(
+      isAscending
+        ? criteriaBuilder.asc(sortPath)
+        : criteriaBuilder.desc(sortPath)
+    );
+    orders.add(
+      isAscending ? criteriaBuilder.asc(idPath) : criteriaBuilder.desc(idPath)
+    );
+    query
+      .select(root)
+      .where(predicates.toArray(new Predicate[0]))
+      .orderBy(orders);
+
+    List<T> rows = entityManager
+      .createQuery(query)
+      .setMaxResults(pageSize + 1)
+      .getResultList();
+    if (rows.size() <= pageSize) return new Page<>(rows, null);
+    List<T> content = new ArrayList<>(rows.subList(0, pageSize));
+    return new Page<>(content, cursorOf(content.get(pageSize - 1), sortBy));
+  }
+
+  Slice<T> fetchSlice(Specification<T> specification, Pageable pageable) {
+    CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<T> query = criteriaBuilder.createQuery(clazz);
+    Root<T> root = query.from(clazz);
+    List<Predicate> predicates = new ArrayList<>();
+    addSpecification(specification, root, query, criteriaBuilder, predicates);
+    query.select(root).where(predicates.toArray(new Predicate[0]));
+    if (pageable.getSort().isSorted()) query.orderBy(
+      QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder)
+    );
+    List<T> rows = entityManager
+      .createQuery(query)
+      .setFirstResult((int) pageable.getOffset())
+      .setMaxResults(pageable.getPageSize() + 1)
+      .getResultList();
+    final boolean hasNext = rows.size() > pageable.getPageSize();
+    final List<T> content = hasNext
+      ? new ArrayList<>(rows.subList(0, pageable.getPageSize()))
+      : rows;
+    return new SliceImpl<>(content, pageable, hasNext);
+  }
+
+  private static <T> void addSpecification(
+    Specification<T> specification,
+    Root<T> root,
+    CriteriaQuery<T> query,
+    CriteriaBuilder criteriaBuilder,
+    List<Predicate> predicates
+  ) {
+    if (specification == null) return;
+    Predicate predicate = specification.toPredicate(
+      root,
+      query,
+      criteriaBuilder
+    );
+    if (predicate != null) predicates.add(predicate);
+  }
+
+  private String cursorOf(T last, String sortBy) {
+    Object sortValue = null;
+    if (sortBy != null) {
+      sortValue = getValueAtPath(last, sortBy);
+      if (sortValue == null) throw new IllegalStateException(
+        "Keyset paging requires non null sort keys, but " +
+        clazz.getSimpleName() +
+        " with id " +
+        entityTypeInfo.getId(last) +
+        " has a null " +
+        sortBy
+      );
+    }
+    return new KeysetCursor(sortValue, entityTypeInfo.getId(last)).encode();
+  }
+
+  static Path<?> resolvePath(Root<?> root, String attributePath) {
+    Path<?> path = root;
+    for (String attribute : attributePath.split("\\.")) path =
+      path.get(attribute);
+    return path;
+  }
+}
@@ -0,0 +1,74 @@
+package dev.sanda.datafi.service;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.ProjectionInformation;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+/**
+ * Executes criteria queries which select only the properties of a closed interface projection
+ * (such as those generated for @WithProjection), rather than entire entities.
+ */
+@RequiredArgsConstructor
+class CriteriaProjector<T> {
+
+  private static final ProjectionFactory projectionFactory =
+    new SpelAwareProxyProjectionFactory();
+
+  @NonNull
+  private final EntityManager entityManager;
+
+  @NonNull
+  private final Class<T> clazz;
+
+  <P> List<P> findAll(Specification<T> specification, Class<P> projection) {
+    final ProjectionInformation projectionInformation = projectionFactory
+      .getProjectionInformation(projection);
+    if (!projectionInformation.isClosed()) throw new IllegalArgumentException(
+      projection.getSimpleName() +
+      " is not a closed projection, and so its required columns cannot be determined"
+    );
+    final CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    final CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+    final Root<T> root = query.from(clazz);
+    final List<Selection<?>> selections = new ArrayList<>();
+    for (PropertyDescriptor property : projectionInformation
+      .getInputProperties()) selections.add(
+      root.get(property.getName()).alias(property.getName())
+    );
+    query.multiselect(selections);
+    if (specification != null) {
+      final Predicate predicate = specification.toPredicate(
+        root,
+        query,
+        criteriaBuilder
+      );
+      if (predicate != null) query.where(predicate);
+    }
+    final List<P> result = new ArrayList<>();
+    for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+      final Map<String, Object> values = new HashMap<>();
+      for (TupleElement<?> element : tuple.getElements()) values.put(
+        element.getAlias(),
+        tuple.get(element)
+      );
+      result.add(projectionFactory.createProjection(projection, values));
+    }
+    return result;
+  }
+}
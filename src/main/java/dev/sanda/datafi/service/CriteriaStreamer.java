@@ -0,0 +1,154 @@
+package dev.sanda.datafi.service;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Streams the results of criteria queries via a forward only, read only server side cursor,
+ * rather than loading the entire result into a list. Rows are fetched from the database fetchSize at a time,
+ * and each entity - along with any entities loaded alongside it, i.e. eager associations - is evicted from
+ * the persistence context once the stream has moved past it, so memory usage stays flat regardless of the size
+ * of the result. Entities which were already managed before streaming began are left as they are.
+ * As such, streamed entities are detached by the time the next one is consumed, and changes made to them
+ * are not persisted unless explicitly saved.
+ * Streams hold on to a database connection until they are closed, and must be consumed within a transaction.
+ */
+@RequiredArgsConstructor
+class CriteriaStreamer<T> {
+
+  @NonNull
+  private final EntityManager entityManager;
+
+  @NonNull
+  private final Class<T> clazz;
+
+  Stream<T> stream(Specification<T> specification, Sort sort, int fetchSize) {
+    if (
+      !TransactionSynchronizationManager.isActualTransactionActive()
+    ) throw new InvalidDataAccessApiUsageException(
+      "Streaming " +
+      clazz.getSimpleName() +
+      " entities requires an active transaction - " +
+      "consider annotating the calling method with @Transactional(readOnly = true)"
+    );
+    final CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    final CriteriaQuery<T> query = criteriaBuilder.createQuery(clazz);
+    final Root<T> root = query.from(clazz);
+    query.select(root);
+    if (specification != null) {
+      final Predicate predicate = specification.toPredicate(
+        root,
+        query,
+        criteriaBuilder
+      );
+      if (predicate != null) query.where(predicate);
+    }
+    if (sort != null && sort.isSorted()) query.orderBy(
+      QueryUtils.toOrders(sort, root, criteriaBuilder)
+    );
+    final Session session = entityManager.unwrap(Session.class);
+    final PersistenceContext persistenceContext = entityManager
+      .unwrap(SessionImplementor.class)
+      .getPersistenceContext();
+    final Set<Object> managedBefore = Collections.newSetFromMap(
+      new IdentityHashMap<>()
+    );
+    for (Map.Entry<Object, EntityEntry> entry : persistenceContext.reentrantSafeEntityEntries()) managedBefore.add(
+      entry.getKey()
+    );
+    final ScrollableResults results = entityManager
+      .createQuery(query)
+      .unwrap(org.hibernate.query.Query.class)
+      .setFetchSize(fetchSize)
+      .setReadOnly(true)
+      .scroll(ScrollMode.FORWARD_ONLY);
+    final EvictingSpliterator<T> spliterator = new EvictingSpliterator<>(
+      results,
+      session,
+      persistenceContext,
+      managedBefore
+    );
+    return StreamSupport
+      .stream(spliterator, false)
+      .onClose(
+        () -> {
+          spliterator.evictPrevious();
+          results.close();
+        }
+      );
+  }
+
+  private static class EvictingSpliterator<T>
+    extends Spliterators.AbstractSpliterator<T> {
+
+    private final ScrollableResults results;
+    private final Session session;
+    private final PersistenceContext persistenceContext;
+    private final Set<Object> managedBefore;
+
+    EvictingSpliterator(
+      ScrollableResults results,
+      Session session,
+      PersistenceContext persistenceContext,
+      Set<Object> managedBefore
+    ) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+      this.results = results;
+      this.session = session;
+      this.persistenceContext = persistenceContext;
+      this.managedBefore = managedBefore;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean tryAdvance(Consumer<? super T> action) {
+      evictPrevious();
+      if (!results.next()) return false;
+      action.accept((T) results.get(0));
+      return true;
+    }
+
+    /**
+     * Evicts all entities which have been loaded since streaming began - the previous row,
+     * as well as whatever was loaded along with it (or by the consumer while processing it).
+     */
+    void evictPrevious() {
+      if (
+        !session.isOpen() ||
+        persistenceContext.getNumberOfManagedEntities() <= managedBefore.size()
+      ) return;
+      for (Map.Entry<Object, EntityEntry> entry : persistenceContext.reentrantSafeEntityEntries()) {
+        final Object entity = entry.getKey();
+        // may have already been evicted by a cascade
+        if (
+          !managedBefore.contains(entity) && session.contains(entity)
+        ) session.evict(entity);
+      }
+    }
+  }
+}
@@ -1,32 +1,43 @@
 package dev.sanda.datafi.service;
 
-import static com.google.common.collect.Maps.immutableEntry;
 import static dev.sanda.datafi.DatafiStaticUtils.*;
 
-import com.google.common.collect.Lists;
 import dev.sanda.datafi.DatafiStaticUtils;
 import dev.sanda.datafi.dto.FreeTextSearchPageRequest;
 import dev.sanda.datafi.dto.Page;
+import dev.sanda.datafi.dto.PageRequest;
+import dev.sanda.datafi.metrics.DataManagerMetrics;
+import dev.sanda.datafi.metrics.NoOpDataManagerMetrics;
 import dev.sanda.datafi.persistence.Archivable;
 import dev.sanda.datafi.persistence.GenericDao;
 import dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo;
+import dev.sanda.datafi.reflection.runtime_services.DispatchKind;
+import dev.sanda.datafi.reflection.runtime_services.MethodHandleDispatchTable;
 import dev.sanda.datafi.reflection.runtime_services.ReflectionCache;
+import dev.sanda.datafi.search.FreeTextSearchIndexes;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.annotation.PostConstruct;
 import javax.persistence.*;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections4.IterableUtils;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Example;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @Slf4j
@@ -48,14 +59,67 @@ public class DataManager<T> {
   private String clazzSimpleNamePlural;
   private String idTypeSimpleName;
   private CachedEntityTypeInfo cachedEntityTypeInfo;
+  private CriteriaPaginator<T> criteriaPaginator;
+  private CriteriaStreamer<T> criteriaStreamer;
+  private CriteriaProjector<T> criteriaProjector;
 
   @Autowired
   protected ReflectionCache reflectionCache;
 
+  @Autowired
+  private MethodHandleDispatchTable dispatchTable;
+
+  @Autowired
+  private CountCache countCache;
+
+  @Autowired
+  private SearchResultCache searchResultCache;
+
+  @Autowired
+  private EntityCache entityCache;
+
+  @Autowired
+  private FreeTextSearchIndexes freeTextSearchIndexes;
+
+  @Value("${datafi.search-index.max-sorted-candidates:1000}")
+  private int maxSortedSearchCandidates;
+
+  private static final Class<?>[] listParam = new Class<?>[] { List.class };
+  private static final Class<?>[] listProjectionParams = new Class<?>[] {
+    List.class,
+    Class.class,
+  };
+  private static final Class<?>[] freeTextSearchParams = new Class<?>[] {
+    String.class,
+    Pageable.class,
+  };
+  private static final Class<?>[] freeTextSearchCountParams = new Class<?>[] {
+    String.class,
+  };
+
   @Setter
   @Value("#{new Boolean('${datafi.logging-enabled:true}')}")
   private Boolean loggingEnabled;
 
+  @Value("#{new Boolean('${datafi.cascade-update.unit-of-work:false}')}")
+  private Boolean isCascadeUnitOfWorkEnabled;
+
+  @Value("${datafi.stream.fetch-size:1000}")
+  private int streamFetchSize;
+
+  @Value("${datafi.batch-loader.max-batch-size:500}")
+  private int maxLoaderBatchSize;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private ObjectProvider<DataManagerMetrics> metricsProvider;
+
+  private DataManagerMetrics metrics;
+
+  private TransactionTemplate transactionTemplate;
+
   /**
    * compile a list of all the the jpa repositories which were
    * autogenerated at compile time, and map each data access object
@@ -76,6 +140,10 @@ public class DataManager<T> {
     dao = daoMap.get(clazzSimpleName);
     cachedEntityTypeInfo =
       reflectionCache.getEntitiesCache().get(clazzSimpleName);
+    criteriaPaginator =
+      new CriteriaPaginator<>(entityManager, clazz, cachedEntityTypeInfo);
+    criteriaStreamer = new CriteriaStreamer<>(entityManager, clazz);
+    criteriaProjector = new CriteriaProjector<>(entityManager, clazz);
   }
 
   @PostConstruct
@@ -86,6 +154,9 @@ public class DataManager<T> {
       clazzSimpleName
     );
     daoMap = toServicesMap(daoCollector.getDaos(), "Dao");
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    metrics =
+      metricsProvider.getIfAvailable(() -> NoOpDataManagerMetrics.INSTANCE);
     if (clazz != null) setType(clazz);
   }
 
@@ -104,24 +175,100 @@ public class DataManager<T> {
         : "Object";
   }
 
+  /*
+   * log calls are guarded at the call site by isInfoLogged() / isTraceLogged(),
+   * so that neither the varargs array nor the log arguments are computed
+   * when logging is disabled.
+   */
+  private boolean isInfoLogged() {
+    return loggingEnabled && log.isInfoEnabled();
+  }
+
+  private boolean isTraceLogged() {
+    return loggingEnabled && log.isTraceEnabled();
+  }
+
   private void logTrace(String method, String msg, Object... args) {
-    if (!loggingEnabled) return;
-    log.trace("DataManager<{}>." + method + " " + msg, clazzSimpleName, args);
+    log.trace(
+      "DataManager<{}>." + method + " " + msg,
+      withClazzSimpleName(args)
+    );
   }
 
   private void logInfo(String method, String msg, Object... args) {
-    if (!loggingEnabled) return;
-    log.info("DataManager<{}>." + method + " " + msg, clazzSimpleName, args);
+    log.info(
+      "DataManager<{}>." + method + " " + msg,
+      withClazzSimpleName(args)
+    );
   }
 
   private void logError(String method, String msg, Object... args) {
     if (!loggingEnabled) return;
-    log.error("DataManager<{}>." + method + " " + msg, clazzSimpleName, args);
+    log.error(
+      "DataManager<{}>." + method + " " + msg,
+      withClazzSimpleName(args)
+    );
+  }
+
+  private Object[] withClazzSimpleName(Object[] args) {
+    Object[] result = new Object[args.length + 1];
+    result[0] = clazzSimpleName;
+    System.arraycopy(args, 0, result, 1, args.length);
+    return result;
+  }
+
+  /**
+   * Invoked after every write, so that cached query results for the given entity type are invalidated.
+   */
+  private void onWrite(Class<?> entityType) {
+    countCache.invalidate(entityType);
+    searchResultCache.invalidate(entityType);
+    entityCache.invalidate(entityType);
+    EntityBatchLoader.clearCurrent(entityType);
+  }
+
+  private long startTimer() {
+    return metrics.isEnabled() ? System.nanoTime() : 0L;
+  }
+
+  private void recordMetric(String operation, long start) {
+    if (start != 0L) metrics.record(
+      clazz,
+      operation,
+      System.nanoTime() - start
+    );
+  }
+
+  // cachedEntityTypeInfo is unresolved for types which aren't datafi entities
+  private Object idForLogging(Object entity) {
+    return entity != null && cachedEntityTypeInfo != null
+      ? cachedEntityTypeInfo.getId(entity)
+      : "(unknown)";
+  }
+
+  private static int sizeOf(Iterable<?> iterable) {
+    if (iterable instanceof Collection) {
+      return ((Collection<?>) iterable).size();
+    }
+    int size = 0;
+    for (Object ignored : iterable) size++;
+    return size;
   }
 
   public List<T> findAll() {
-    final List all = dao.findAll();
-    logInfo("findAll()", "fetched {} {}", all.size(), clazzSimpleNamePlural);
+    final long start = startTimer();
+    final List all;
+    try {
+      all = dao.findAll();
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
+      "findAll()",
+      "fetched {} {}",
+      all.size(),
+      clazzSimpleNamePlural
+    );
     return all;
   }
 
@@ -130,20 +277,32 @@ public class DataManager<T> {
   }
 
   public List<T> findAll(Sort sort) {
-    final List all = dao.findAll(sort);
-    logInfo(
+    final long start = startTimer();
+    final List all;
+    try {
+      all = dao.findAll(sort);
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findAll(Sort sort)",
       "fetched {} {}, sorted by {}",
       all.size(),
       clazzSimpleNamePlural,
-      sort.toString()
+      sort
     );
     return all;
   }
 
   public org.springframework.data.domain.Page findAll(Pageable pageable) {
-    final org.springframework.data.domain.Page all = dao.findAll(pageable);
-    logInfo(
+    final long start = startTimer();
+    final org.springframework.data.domain.Page all;
+    try {
+      all = dao.findAll(pageable);
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findAll(Pageable pageable)",
       "fetched {} {}, in {} pages",
       all.getTotalElements(),
@@ -154,8 +313,14 @@ public class DataManager<T> {
   }
 
   public List<T> findAllById(Iterable<?> iterable) {
-    final List allById = dao.findAllById(iterable);
-    logInfo(
+    final long start = startTimer();
+    final List allById;
+    try {
+      allById = dao.findAllById(iterable);
+    } finally {
+      recordMetric("findAllById", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findAllById(Iterable<{}> iterable)",
       "fetched {} {} by id",
       idTypeSimpleName,
@@ -166,8 +331,14 @@ public class DataManager<T> {
   }
 
   public long count() {
-    final long count = dao.count();
-    logInfo(
+    final long start = startTimer();
+    final long count;
+    try {
+      count = dao.count();
+    } finally {
+      recordMetric("count", start);
+    }
+    if (isInfoLogged()) logInfo(
       "count()",
       "counted a total of {} {}",
       count,
@@ -177,8 +348,14 @@ public class DataManager<T> {
   }
 
   public void deleteById(Object id) {
-    dao.deleteById(id);
-    logInfo(
+    final long start = startTimer();
+    try {
+      dao.deleteById(id);
+      onWrite(clazz);
+    } finally {
+      recordMetric("deleteById", start);
+    }
+    if (isInfoLogged()) logInfo(
       "deleteById({} id)",
       "deleted {} by id {}",
       idTypeSimpleName,
@@ -188,50 +365,88 @@ public class DataManager<T> {
   }
 
   public void delete(T t) {
-    dao.delete(t);
-    logInfo(
+    final long start = startTimer();
+    try {
+      dao.delete(t);
+      onWrite(clazz);
+    } finally {
+      recordMetric("delete", start);
+    }
+    if (isInfoLogged()) logInfo(
       "delete({} {})",
       "deleted {} with id {}",
       clazzSimpleName,
       toCamelCase(clazzSimpleName),
       clazzSimpleName,
-      reflectionCache.getEntitiesCache().get(clazzSimpleName).getId(t)
+      idForLogging(t)
     );
   }
 
   public void deleteAll(Iterable<? extends T> iterable) {
-    dao.deleteAll(iterable);
-    logInfo(
+    final long start = startTimer();
+    try {
+      dao.deleteAll(iterable);
+      onWrite(clazz);
+    } finally {
+      recordMetric("deleteAll", start);
+    }
+    if (isInfoLogged()) logInfo(
       "deleteAll(Iterable<{}> iterable)",
       "deleted {} {}",
       clazzSimpleName,
-      Lists.newArrayList(iterable).size(),
+      sizeOf(iterable),
       clazzSimpleNamePlural
     );
   }
 
   public void deleteAll() {
-    final long count = count();
-    dao.deleteAll();
-    logInfo("deleteAll()", "deleted all {} {}", count, clazzSimpleNamePlural);
+    final long start = startTimer();
+    final long count;
+    try {
+      count = count();
+      dao.deleteAll();
+      onWrite(clazz);
+    } finally {
+      recordMetric("deleteAll", start);
+    }
+    if (isInfoLogged()) logInfo(
+      "deleteAll()",
+      "deleted all {} {}",
+      count,
+      clazzSimpleNamePlural
+    );
   }
 
   public <S extends T> S save(S s) {
-    final S saved = (S) dao.save(s);
-    logInfo(
+    final long start = startTimer();
+    final S saved;
+    try {
+      saved = (S) dao.save(s);
+      onWrite(clazz);
+    } finally {
+      recordMetric("save", start);
+    }
+    if (isInfoLogged()) logInfo(
       "save({} {})",
-      "saved {}: {}",
+      "saved {} with id {}",
       clazzSimpleName,
       toCamelCase(clazzSimpleName),
       clazzSimpleName,
-      s.toString()
+      idForLogging(saved)
     );
     return saved;
   }
 
   public <S extends T> List<S> saveAll(Iterable<S> iterable) {
-    final List list = dao.saveAll(iterable);
-    logInfo(
+    final long start = startTimer();
+    final List list;
+    try {
+      list = dao.saveAll(iterable);
+      onWrite(clazz);
+    } finally {
+      recordMetric("saveAll", start);
+    }
+    if (isInfoLogged()) logInfo(
       "saveAll(Iterable<{}> iterable)",
       "saved {} {}",
       clazzSimpleName,
@@ -242,9 +457,16 @@ public class DataManager<T> {
   }
 
   public <S extends T> List<S> saveAllAndFlush(Iterable<S> iterable) {
-    final List list = dao.saveAll(iterable);
-    dao.flush();
-    logInfo(
+    final long start = startTimer();
+    final List list;
+    try {
+      list = dao.saveAll(iterable);
+      dao.flush();
+      onWrite(clazz);
+    } finally {
+      recordMetric("saveAllAndFlush", start);
+    }
+    if (isInfoLogged()) logInfo(
       "saveAll(Iterable<{}> iterable)",
       "saved {} {}",
       clazzSimpleName,
@@ -255,8 +477,14 @@ public class DataManager<T> {
   }
 
   public Optional<T> findById(Object id) {
-    final Optional o = dao.findById(id);
-    logInfo(
+    final long start = startTimer();
+    final Optional o;
+    try {
+      o = entityCache.findById(clazz, id, () -> dao.findById(id));
+    } finally {
+      recordMetric("findById", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findById({} id)",
       o.isPresent() ? "fetched {} by id {}" : "could not find {} by id {}",
       idTypeSimpleName,
@@ -266,9 +494,32 @@ public class DataManager<T> {
     return o;
   }
 
+  /**
+   * @return a loader which batches findById lookups into findAllById queries - bound to the current
+   * transaction if there is one, such that all callers within the transaction share its batches
+   * and identity map. See EntityBatchLoader.
+   */
+  public EntityBatchLoader<T> batchLoader() {
+    return EntityBatchLoader.forCurrentTransaction(
+      clazz,
+      () ->
+        new EntityBatchLoader<>(
+          this::findAllById,
+          cachedEntityTypeInfo::getId,
+          maxLoaderBatchSize
+        )
+    );
+  }
+
   public boolean existsById(Object id) {
-    final boolean exists = dao.existsById(id);
-    logInfo(
+    final long start = startTimer();
+    final boolean exists;
+    try {
+      exists = entityCache.contains(clazz, id) || dao.existsById(id);
+    } finally {
+      recordMetric("existsById", start);
+    }
+    if (isInfoLogged()) logInfo(
       "existsById({} id)",
       exists
         ? "validated existence of {} by id {}"
@@ -282,53 +533,98 @@ public class DataManager<T> {
 
   public void flush() {
     dao.flush();
-    logTrace("flush()", "flushed JpaRepository persistence context");
+    if (isTraceLogged()) logTrace(
+      "flush()",
+      "flushed JpaRepository persistence context"
+    );
   }
 
   public <S extends T> S saveAndFlush(S s) {
-    final S saved = (S) dao.saveAndFlush(s);
-    logInfo(
+    final long start = startTimer();
+    final S saved;
+    try {
+      saved = (S) dao.saveAndFlush(s);
+      onWrite(clazz);
+    } finally {
+      recordMetric("saveAndFlush", start);
+    }
+    if (isInfoLogged()) logInfo(
       "saveAndFlush({} {})",
-      "saved and flushed {}: {}",
+      "saved and flushed {} with id {}",
       clazzSimpleName,
       toCamelCase(clazzSimpleName),
       clazzSimpleName,
-      s.toString()
+      idForLogging(saved)
     );
     return saved;
   }
 
   public void deleteInBatch(Iterable<T> iterable) {
-    dao.deleteInBatch(iterable);
-    logInfo(
+    final long start = startTimer();
+    try {
+      dao.deleteInBatch(iterable);
+      onWrite(clazz);
+      // bulk deletes aren't seen by the search index's post commit listeners
+      final List<Object> ids = new ArrayList<>();
+      iterable.forEach(entity -> ids.add(cachedEntityTypeInfo.getId(entity)));
+      freeTextSearchIndexes.onBulkDeleted(clazz, ids);
+    } finally {
+      recordMetric("deleteInBatch", start);
+    }
+    if (isInfoLogged()) logInfo(
       "deleteInBatch(Iterable<{}> iterable)",
       "deleted batch of {} {}",
       clazzSimpleName,
-      IterableUtils.size(iterable),
+      sizeOf(iterable),
       clazzSimpleNamePlural
     );
   }
 
   public void deleteAllInBatch() {
-    dao.deleteAllInBatch();
-    logInfo("deleteAllInBatch()", "deleted all {}", clazzSimpleNamePlural);
+    final long start = startTimer();
+    try {
+      dao.deleteAllInBatch();
+      onWrite(clazz);
+      freeTextSearchIndexes.onAllDeleted(clazz);
+    } finally {
+      recordMetric("deleteAllInBatch", start);
+    }
+    if (isInfoLogged()) logInfo(
+      "deleteAllInBatch()",
+      "deleted all {}",
+      clazzSimpleNamePlural
+    );
   }
 
   public T getOne(Object id) {
-    final T fetched = (T) dao.getOne(id);
-    logInfo(
+    final long start = startTimer();
+    final T cached;
+    final T fetched;
+    try {
+      cached = entityCache.getIfPresent(clazz, id);
+      fetched = cached != null ? cached : (T) dao.getOne(id);
+    } finally {
+      recordMetric("getOne", start);
+    }
+    if (isInfoLogged()) logInfo(
       "getOne({} id)",
       "fetched one {} by id {}",
       idTypeSimpleName,
       clazzSimpleName,
-      id.toString()
+      id
     );
     return fetched;
   }
 
   public <S extends T> Optional<S> findOne(Example<S> example) {
-    final Optional fetched = dao.findOne(example);
-    logInfo(
+    final long start = startTimer();
+    final Optional fetched;
+    try {
+      fetched = dao.findOne(example);
+    } finally {
+      recordMetric("findOne", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findOne(Example<{}> example)",
       fetched.isPresent()
         ? "fetched one {} by provided example"
@@ -340,8 +636,14 @@ public class DataManager<T> {
   }
 
   public <S extends T> List<S> findAll(Example<S> example) {
-    final List all = dao.findAll(example);
-    logInfo(
+    final long start = startTimer();
+    final List all;
+    try {
+      all = dao.findAll(example);
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findAll(Example<{}> example)",
       "found all {} by provided example",
       clazzSimpleName
@@ -350,14 +652,20 @@ public class DataManager<T> {
   }
 
   public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
-    final List all = dao.findAll(example, sort);
-    logInfo(
+    final long start = startTimer();
+    final List all;
+    try {
+      all = dao.findAll(example, sort);
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findAll(Example<{}> example)",
       "found all {} {} by provided example, sorted by {}",
       clazzSimpleName,
       all.size(),
       clazzSimpleNamePlural,
-      sort.toString()
+      sort
     );
     return all;
   }
@@ -366,11 +674,14 @@ public class DataManager<T> {
     Example<S> example,
     Pageable pageable
   ) {
-    final org.springframework.data.domain.Page all = dao.findAll(
-      example,
-      pageable
-    );
-    logInfo(
+    final long start = startTimer();
+    final org.springframework.data.domain.Page all;
+    try {
+      all = dao.findAll(example, pageable);
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findAll(Example<{}> example)",
       "found all {} {} by provided example, in {} page(s)",
       clazzSimpleName,
@@ -382,8 +693,14 @@ public class DataManager<T> {
   }
 
   public <S extends T> long count(Example<S> example) {
-    final long count = dao.count(example);
-    logInfo(
+    final long start = startTimer();
+    final long count;
+    try {
+      count = dao.count(example);
+    } finally {
+      recordMetric("count", start);
+    }
+    if (isInfoLogged()) logInfo(
       "count(Example<{}> example)",
       "counted {} {} by provided example",
       clazzSimpleName,
@@ -394,8 +711,14 @@ public class DataManager<T> {
   }
 
   public <S extends T> boolean exists(Example<S> example) {
-    final boolean exists = dao.exists(example);
-    logInfo(
+    final long start = startTimer();
+    final boolean exists;
+    try {
+      exists = dao.exists(example);
+    } finally {
+      recordMetric("exists", start);
+    }
+    if (isInfoLogged()) logInfo(
       "exists(Example<{}> example)",
       exists
         ? "validated existence of {} by provided example"
@@ -407,40 +730,95 @@ public class DataManager<T> {
   }
 
   public List<T> findBy(String attributeName, Object attributeValue) {
+    final long start = startTimer();
     try {
       final Class<?> attributeValueClass = attributeValue.getClass();
-      Class<?>[] params = new Class<?>[] { attributeValueClass };
-      String resolverName = "findBy" + toPascalCase(attributeName);
-      Method methodToInvoke = getMethodToInvoke(resolverName, params, dao);
-      final List<T> result = (List<T>) methodToInvoke.invoke(
+      final List<T> result = (List<T>) dispatchTable.invoke(
+        DispatchKind.FIND_BY,
+        attributeName,
+        new Class<?>[] { attributeValueClass },
         dao,
-        new Object[] { attributeValue }
+        attributeValue
       );
-      logInfo(
+      if (isInfoLogged()) logInfo(
         "findBy(String attributeName, {} attributeValue)",
         "found {} {} by field {} with matching value of {}",
         attributeValueClass.getSimpleName(),
         result.size(),
         clazzSimpleNamePlural,
-        attributeValue.toString()
+        attributeValue
       );
       return result;
     } catch (Exception e) {
       throw new RuntimeException(e);
+    } finally {
+      recordMetric("findBy", start);
+    }
+  }
+
+  /**
+   * Paginated equivalent of findBy(attributeName, attributeValue), supporting both offset and keyset paging.
+   */
+  public Page<T> findBy(
+    String attributeName,
+    Object attributeValue,
+    PageRequest request
+  ) {
+    final long start = startTimer();
+    final Page<T> page;
+    try {
+      if (
+        !cachedEntityTypeInfo.getSortKeys().contains(attributeName)
+      ) throw new IllegalArgumentException(
+        "Cannot find " + clazzSimpleNamePlural + " by " + attributeName
+      );
+      DatafiStaticUtils.validateSortByIfNonNull(
+        clazz,
+        request.getSortBy(),
+        reflectionCache
+      );
+      page = fetchPage(
+        (root, query, criteriaBuilder) ->
+          criteriaBuilder.equal(
+            CriteriaPaginator.resolvePath(root, attributeName),
+            attributeValue
+          ),
+        request,
+        Arrays.asList("findBy", attributeName, attributeValue)
+      );
+    } finally {
+      recordMetric("findBy", start);
     }
+    if (isInfoLogged()) logInfo(
+      "findBy(String attributeName, {} attributeValue, PageRequest request)",
+      "found {} {} by field {} with matching value of {}",
+      attributeValue.getClass().getSimpleName(),
+      page.getContent().size(),
+      clazzSimpleNamePlural,
+      attributeName,
+      attributeValue
+    );
+    return page;
   }
 
   public Optional<T> findByUnique(String attributeName, Object attributeValue) {
+    final long start = startTimer();
     try {
       final Class<?> attributeValueClass = attributeValue.getClass();
-      Class<?>[] params = new Class<?>[] { attributeValueClass };
-      String resolverName = "findBy" + toPascalCase(attributeName);
-      Method methodToInvoke = getMethodToInvoke(resolverName, params, dao);
-      final Optional<T> result = (Optional<T>) methodToInvoke.invoke(
-        dao,
-        new Object[] { attributeValue }
+      final Optional<T> result = entityCache.findByUnique(
+        clazz,
+        attributeName,
+        attributeValue,
+        () ->
+          (Optional<T>) dispatchTable.invoke(
+            DispatchKind.FIND_BY,
+            attributeName,
+            new Class<?>[] { attributeValueClass },
+            dao,
+            attributeValue
+          )
       );
-      logInfo(
+      if (isInfoLogged()) logInfo(
         "findByUnique(String attributeName, {} attributeValue)",
         result.isPresent()
           ? "found {} by field {} with matching value of {}"
@@ -448,25 +826,28 @@ public class DataManager<T> {
         attributeValueClass.getSimpleName(),
         clazzSimpleName,
         attributeName,
-        attributeValue.toString()
+        attributeValue
       );
       return result;
     } catch (Exception e) {
       throw new RuntimeException(e);
+    } finally {
+      recordMetric("findByUnique", start);
     }
   }
 
   public List<T> findAllBy(String attributeName, Object[] attributeValues) {
+    final long start = startTimer();
     try {
-      Class<?>[] params = new Class<?>[] { List.class };
-      String resolverName = "findAllBy" + toPascalCase(attributeName) + "In";
-      Method methodToInvoke = getMethodToInvoke(resolverName, params, dao);
       final List<Object> attributeValuesAsList = Arrays.asList(attributeValues);
-      final List<T> result = (List<T>) methodToInvoke.invoke(
+      final List<T> result = (List<T>) dispatchTable.invoke(
+        DispatchKind.FIND_ALL_BY,
+        attributeName,
+        listParam,
         dao,
         attributeValuesAsList
       );
-      logInfo(
+      if (isInfoLogged()) logInfo(
         "findAllBy(String attributeName, Object[] attributeValues)",
         "found {} {} by provided attribute values: {}",
         result.size(),
@@ -476,12 +857,155 @@ public class DataManager<T> {
       return result;
     } catch (Exception e) {
       throw new RuntimeException(e);
+    } finally {
+      recordMetric("findAllBy", start);
     }
   }
 
+  /**
+   * Projection variant of findBy(attributeName, attributeValue), which selects only the columns
+   * backing the given projection - i.e one generated via @WithProjection.
+   */
+  public <P> List<P> findBy(
+    String attributeName,
+    Object attributeValue,
+    Class<P> projection
+  ) {
+    final long start = startTimer();
+    final Class<?> attributeValueClass;
+    final List<P> result;
+    try {
+      attributeValueClass = attributeValue.getClass();
+      result = (List<P>) dispatchTable.invoke(
+        DispatchKind.FIND_BY,
+        attributeName,
+        new Class<?>[] { attributeValueClass, Class.class },
+        dao,
+        attributeValue,
+        projection
+      );
+    } finally {
+      recordMetric("findBy", start);
+    }
+    if (isInfoLogged()) logInfo(
+      "findBy(String attributeName, {} attributeValue, Class<{}> projection)",
+      "found {} {} by field {} with matching value of {}",
+      attributeValueClass.getSimpleName(),
+      projection.getSimpleName(),
+      result.size(),
+      clazzSimpleNamePlural,
+      attributeName,
+      attributeValue
+    );
+    return result;
+  }
+
+  /**
+   * Projection variant of findByUnique(attributeName, attributeValue).
+   */
+  public <P> Optional<P> findByUnique(
+    String attributeName,
+    Object attributeValue,
+    Class<P> projection
+  ) {
+    final long start = startTimer();
+    final Class<?> attributeValueClass;
+    final Optional<P> result;
+    try {
+      attributeValueClass = attributeValue.getClass();
+      result = (Optional<P>) dispatchTable.invoke(
+        DispatchKind.FIND_BY,
+        attributeName,
+        new Class<?>[] { attributeValueClass, Class.class },
+        dao,
+        attributeValue,
+        projection
+      );
+    } finally {
+      recordMetric("findByUnique", start);
+    }
+    if (isInfoLogged()) logInfo(
+      "findByUnique(String attributeName, {} attributeValue, Class<{}> projection)",
+      result.isPresent()
+        ? "found {} by field {} with matching value of {}"
+        : "could not find {} by field {} with matching value of {}",
+      attributeValueClass.getSimpleName(),
+      projection.getSimpleName(),
+      clazzSimpleName,
+      attributeName,
+      attributeValue
+    );
+    return result;
+  }
+
+  /**
+   * Projection variant of findAllBy(attributeName, attributeValues).
+   */
+  public <P> List<P> findAllBy(
+    String attributeName,
+    Object[] attributeValues,
+    Class<P> projection
+  ) {
+    final long start = startTimer();
+    final List<P> result;
+    try {
+      result = (List<P>) dispatchTable.invoke(
+        DispatchKind.FIND_ALL_BY,
+        attributeName,
+        listProjectionParams,
+        dao,
+        Arrays.asList(attributeValues),
+        projection
+      );
+    } finally {
+      recordMetric("findAllBy", start);
+    }
+    if (isInfoLogged()) logInfo(
+      "findAllBy(String attributeName, Object[] attributeValues, Class<{}> projection)",
+      "found {} {} by provided attribute values: {}",
+      projection.getSimpleName(),
+      result.size(),
+      clazzSimpleNamePlural,
+      Arrays.toString(attributeValues)
+    );
+    return result;
+  }
+
+  /**
+   * Fetches all entities matching the given specification, selecting only the columns
+   * backing the given (closed interface) projection.
+   */
+  public <P> List<P> findAll(
+    Specification<T> specification,
+    Class<P> projection
+  ) {
+    final long start = startTimer();
+    final List<P> result;
+    try {
+      result = criteriaProjector.findAll(specification, projection);
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
+      "findAll(Specification<{}> specification, Class<{}> projection)",
+      "found {} {} by provided specification",
+      clazzSimpleName,
+      projection.getSimpleName(),
+      result.size(),
+      clazzSimpleNamePlural
+    );
+    return result;
+  }
+
   public Optional<T> findOne(Specification<T> specification) {
-    final Optional result = dao.findOne(specification);
-    logInfo(
+    final long start = startTimer();
+    final Optional result;
+    try {
+      result = dao.findOne(specification);
+    } finally {
+      recordMetric("findOne", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findOne(Specification<{}> specification)",
       result.isPresent()
         ? "found one {} by provided specification"
@@ -492,8 +1016,14 @@ public class DataManager<T> {
   }
 
   public List<T> findAll(Specification<T> specification) {
-    final List all = dao.findAll(specification);
-    logInfo(
+    final long start = startTimer();
+    final List all;
+    try {
+      all = dao.findAll(specification);
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findAll(Specification<{}> specification)",
       "found {} {} by provided specification",
       clazzSimpleName,
@@ -507,11 +1037,14 @@ public class DataManager<T> {
     Specification<T> specification,
     Pageable pageable
   ) {
-    final org.springframework.data.domain.Page all = dao.findAll(
-      specification,
-      pageable
-    );
-    logInfo(
+    final long start = startTimer();
+    final org.springframework.data.domain.Page all;
+    try {
+      all = dao.findAll(specification, pageable);
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findAll(Specification<{}> specification, Pageable pageable)",
       "found {} {} by provided specification in {} pages",
       clazzSimpleName,
@@ -523,21 +1056,148 @@ public class DataManager<T> {
   }
 
   public List<T> findAll(Specification<T> specification, Sort sort) {
-    final List all = dao.findAll(specification, sort);
-    logInfo(
+    final long start = startTimer();
+    final List all;
+    try {
+      all = dao.findAll(specification, sort);
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
       "findAll(Specification<{}> specification, Sort sort)",
       "found {} {} by provided specification, sorted by {}",
       clazzSimpleName,
       all.size(),
       clazzSimpleNamePlural,
-      sort.toString()
+      sort
     );
     return all;
   }
 
+  /**
+   * Fetches a single page of entities - by offset, as a slice, or by keyset, depending on the given request.
+   */
+  public Page<T> findAll(PageRequest request) {
+    final long start = startTimer();
+    final Page<T> page;
+    try {
+      DatafiStaticUtils.validateSortByIfNonNull(
+        clazz,
+        request.getSortBy(),
+        reflectionCache
+      );
+      page = fetchPage(null, request, Arrays.asList("findAll"));
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
+      "findAll(PageRequest request)",
+      "fetched {} {}",
+      page.getContent().size(),
+      clazzSimpleNamePlural
+    );
+    return page;
+  }
+
+  /**
+   * Fetches a single page of entities matching the given specification - either by offset,
+   * or by keyset if request.getKeysetPaging() is true.
+   */
+  public Page<T> findAll(Specification<T> specification, PageRequest request) {
+    final long start = startTimer();
+    final Page<T> page;
+    try {
+      DatafiStaticUtils.validateSortByIfNonNull(
+        clazz,
+        request.getSortBy(),
+        reflectionCache
+      );
+      page = fetchPage(specification, request, null);
+    } finally {
+      recordMetric("findAll", start);
+    }
+    if (isInfoLogged()) logInfo(
+      "findAll(Specification<{}> specification, PageRequest request)",
+      "found {} {} by provided specification",
+      clazzSimpleName,
+      page.getContent().size(),
+      clazzSimpleNamePlural
+    );
+    return page;
+  }
+
+  /**
+   * Streams all entities via a server side cursor, keeping memory usage flat regardless of table size.
+   * Must be called within a transaction, and the returned stream must be closed once consumed
+   * (i.e using try-with-resources). Each streamed entity is detached once the next one is consumed.
+   */
+  public Stream<T> streamAll() {
+    return stream(null, Sort.unsorted());
+  }
+
+  public Stream<T> streamAll(Sort sort) {
+    return stream(null, sort);
+  }
+
+  /**
+   * Streams all entities matching the given specification - see streamAll().
+   */
+  public Stream<T> stream(Specification<T> specification) {
+    return stream(specification, Sort.unsorted());
+  }
+
+  /**
+   * Streaming equivalent of the generated findByX(value) finders - see streamAll().
+   */
+  public Stream<T> streamBy(String fieldName, Object value) {
+    return stream(
+      (root, query, criteriaBuilder) ->
+        criteriaBuilder.equal(root.get(fieldName), value),
+      Sort.unsorted()
+    );
+  }
+
+  /**
+   * Streaming equivalent of the generated findAllByXIn(values) finders - see streamAll().
+   */
+  public Stream<T> streamAllByIn(String fieldName, Collection<?> values) {
+    return stream(
+      (root, query, criteriaBuilder) -> root.get(fieldName).in(values),
+      Sort.unsorted()
+    );
+  }
+
+  public Stream<T> stream(Specification<T> specification, Sort sort) {
+    final long start = startTimer();
+    final Stream<T> stream;
+    try {
+      stream = criteriaStreamer.stream(
+        specification,
+        sort,
+        streamFetchSize
+      );
+    } finally {
+      recordMetric("stream", start);
+    }
+    if (isInfoLogged()) logInfo(
+      "stream(Specification<{}> specification, Sort sort)",
+      "opened {} stream with a fetch size of {}",
+      clazzSimpleName,
+      clazzSimpleName,
+      streamFetchSize
+    );
+    return stream;
+  }
+
   public long count(Specification<T> specification) {
-    final long count = dao.count(specification);
-    logInfo(
+    final long start = startTimer();
+    final long count;
+    try {
+      count = dao.count(specification);
+    } finally {
+      recordMetric("count", start);
+    }
+    if (isInfoLogged()) logInfo(
       "count(Specification<{}> specification)",
       "counted {} {} by provided specfication",
       clazzSimpleName,
@@ -548,12 +1208,18 @@ public class DataManager<T> {
   }
 
   public <TResult> TResult callQuery(String queryName, Object... args) {
+    final long start = startTimer();
     try {
       Class<?>[] params = new Class<?>[args.length];
       for (int i = 0; i < args.length; i++) params[i] = args[i].getClass();
-      Method methodToInvoke = getMethodToInvoke(queryName, params, dao);
-      final TResult result = (TResult) methodToInvoke.invoke(dao, args);
-      logInfo(
+      final TResult result = (TResult) dispatchTable.invoke(
+        DispatchKind.METHOD,
+        queryName,
+        params,
+        dao,
+        args
+      );
+      if (isInfoLogged()) logInfo(
         "callQuery(String queryName, Object... args)",
         Collection.class.isAssignableFrom(result.getClass())
           ? String.format(
@@ -570,12 +1236,24 @@ public class DataManager<T> {
       return result;
     } catch (Exception e) {
       throw new RuntimeException(e);
+    } finally {
+      recordMetric("callQuery", start);
     }
   }
 
   public T cascadeUpdate(T toUpdate, T source) {
-    final T updated = (T) cascadeUpdateImpl(toUpdate, source);
-    logInfo(
+    final long start = startTimer();
+    final T updated;
+    try {
+      updated = cascadeUpdateAll(
+        Collections.singletonList(toUpdate),
+        Collections.singletonList(source)
+      )
+        .get(0);
+    } finally {
+      recordMetric("cascadeUpdate", start);
+    }
+    if (isInfoLogged()) logInfo(
       "cascadeUpdate({} toUpdate, {} source)",
       "cascade updated {}",
       clazzSimpleName,
@@ -590,40 +1268,40 @@ public class DataManager<T> {
     String fieldName,
     List<T> toAdd
   ) {
-    final String toAddToClazzName = toAddTo.getClass().getSimpleName();
-    GenericDao toAddDao = dao;
-    GenericDao toAddToDao = daoMap.get(toAddToClazzName);
-
-    toAddTo =
-      (HasTs) toAddToDao
-        .findById(
-          reflectionCache
-            .getEntitiesCache()
-            .get(toAddToClazzName)
-            .getId(toAddTo)
-        )
-        .orElse(null);
-    if (toAddTo == null) throw new IllegalArgumentException(
-      "Could not find an entity with the given id"
-    );
-    Method existingCollectionGetter = getMethodToInvoke(
-      "get" + toPascalCase(fieldName),
-      toAddTo
-    );
-    Collection<T> existingCollection = (Collection<T>) invoke(
-      existingCollectionGetter,
-      toAddTo
-    );
-    existingCollection.addAll(toAdd);
-    Method existingCollectionSetter = getMethodToInvoke(
-      "set" + toPascalCase(fieldName),
-      toAddTo
-    );
-    invoke(existingCollectionSetter, toAddTo, existingCollection);
-
-    toAddToDao.save(toAddTo);
-    toAddDao.saveAll(toAdd);
-    logInfo(
+    final long start = startTimer();
+    final String toAddToClazzName;
+    try {
+      toAddToClazzName = toAddTo.getClass().getSimpleName();
+      GenericDao toAddDao = dao;
+      GenericDao toAddToDao = daoMap.get(toAddToClazzName);
+
+      toAddTo =
+        (HasTs) toAddToDao
+          .findById(
+            reflectionCache
+              .getEntitiesCache()
+              .get(toAddToClazzName)
+              .getId(toAddTo)
+          )
+          .orElse(null);
+      if (toAddTo == null) throw new IllegalArgumentException(
+        "Could not find an entity with the given id"
+      );
+      Collection<T> existingCollection = (Collection<T>) dispatchTable.invokeGetter(
+        fieldName,
+        toAddTo
+      );
+      existingCollection.addAll(toAdd);
+      dispatchTable.invokeSetter(fieldName, toAddTo, existingCollection);
+
+      toAddToDao.save(toAddTo);
+      toAddDao.saveAll(toAdd);
+      onWrite(clazz);
+      onWrite(toAddTo.getClass());
+    } finally {
+      recordMetric("createAndAddNewToCollectionIn", start);
+    }
+    if (isInfoLogged()) logInfo(
       "createAndAddNewToCollectionIn({} toAddTo, String fieldName, List<{}> toAdd)",
       "created {} {} and associated them with {} by id: {}",
       toAddToClazzName,
@@ -641,43 +1319,41 @@ public class DataManager<T> {
     String fieldName,
     List<T> toAssociate
   ) {
-    GenericDao toAssociateDao = dao;
-    final String toAssociateWithClazzName = toAssociateWith
-      .getClass()
-      .getSimpleName();
-    GenericDao toAssociateWithDao = daoMap.get(toAssociateWithClazzName);
-
-    toAssociate =
-      toAssociateDao.findAllById(getIdList(toAssociate, reflectionCache));
-    toAssociateWith =
-      (HasTs) toAssociateWithDao
-        .findById(
-          reflectionCache
-            .getEntitiesCache()
-            .get(toAssociateWithClazzName)
-            .getId(toAssociateWith)
-        )
-        .orElse(null);
-    if (toAssociateWith == null) throw new IllegalArgumentException(
-      "Could not find an entity with the given id"
-    );
-    Method existingCollectionGetter = getMethodToInvoke(
-      "get" + toPascalCase(fieldName),
-      toAssociateWith
-    );
-    Collection<T> existingCollection = (Collection<T>) invoke(
-      existingCollectionGetter,
-      toAssociateWith
-    );
-    existingCollection.addAll(toAssociate);
-    Method existingCollectionSetter = getMethodToInvoke(
-      "set" + toPascalCase(fieldName),
-      toAssociateWith
-    );
-    invoke(existingCollectionSetter, toAssociateWith, existingCollection);
-    toAssociateWithDao.save(toAssociateWith);
-
-    logInfo(
+    final long start = startTimer();
+    final String toAssociateWithClazzName;
+    try {
+      GenericDao toAssociateDao = dao;
+      toAssociateWithClazzName = toAssociateWith
+        .getClass()
+        .getSimpleName();
+      GenericDao toAssociateWithDao = daoMap.get(toAssociateWithClazzName);
+
+      toAssociate =
+        toAssociateDao.findAllById(getIdList(toAssociate, reflectionCache));
+      toAssociateWith =
+        (HasTs) toAssociateWithDao
+          .findById(
+            reflectionCache
+              .getEntitiesCache()
+              .get(toAssociateWithClazzName)
+              .getId(toAssociateWith)
+          )
+          .orElse(null);
+      if (toAssociateWith == null) throw new IllegalArgumentException(
+        "Could not find an entity with the given id"
+      );
+      Collection<T> existingCollection = (Collection<T>) dispatchTable.invokeGetter(
+        fieldName,
+        toAssociateWith
+      );
+      existingCollection.addAll(toAssociate);
+      dispatchTable.invokeSetter(fieldName, toAssociateWith, existingCollection);
+      toAssociateWithDao.save(toAssociateWith);
+      onWrite(toAssociateWith.getClass());
+    } finally {
+      recordMetric("associateExistingWithCollectionIn", start);
+    }
+    if (isInfoLogged()) logInfo(
       "associateExistingWithCollectionIn({} toAssociateWith, String fieldName, List<{}> toAssociate)",
       "associated {} {} with {} by id: {}",
       toAssociateWithClazzName,
@@ -694,75 +1370,283 @@ public class DataManager<T> {
     Collection<T> toUpdate,
     Collection<T> updated
   ) {
-    Map<Object, T> updatedEntitiesMap = updated
-      .stream()
-      .collect(
-        Collectors.toMap(
-          updatedObj -> getId(updatedObj, reflectionCache),
-          updatedObj -> updatedObj
-        )
-      );
-    for (T entityToUpdate : toUpdate) {
-      T updatedEntity = updatedEntitiesMap.get(
-        getId(entityToUpdate, reflectionCache)
+    final long start = startTimer();
+    final List<T> result;
+    try {
+      Map<Object, T> updatedEntitiesMap = updated
+        .stream()
+        .collect(
+          Collectors.toMap(
+            updatedObj -> getId(updatedObj, reflectionCache),
+            updatedObj -> updatedObj
+          )
+        );
+      List<T> entitiesToUpdate = new ArrayList<>(toUpdate);
+      List<T> sources = new ArrayList<>(toUpdate.size());
+      for (T entityToUpdate : entitiesToUpdate) sources.add(
+        updatedEntitiesMap.get(getId(entityToUpdate, reflectionCache))
       );
-      cascadeUpdateImpl(entityToUpdate, updatedEntity);
+      result = cascadeUpdateAll(entitiesToUpdate, sources);
+    } finally {
+      recordMetric("cascadeUpdateCollection", start);
     }
-    logInfo(
+    if (isInfoLogged()) logInfo(
       "cascadeUpdateCollection(Iterable<{}> toUpdate, Iterable<{}> updated)",
       "cascade updated collection of {}",
       clazzSimpleName,
       clazzSimpleName,
       clazzSimpleNamePlural
     );
-    return dao.saveAll(toUpdate);
+    return result;
   }
 
-  private Object cascadeUpdateImpl(Object toUpdate, Object source) {
+  /**
+   * Cascade updates each entity in toUpdate from the corresponding entity in sources.
+   * If datafi.cascade-update.unit-of-work is enabled, the whole modified graph is collected
+   * first and then written within a single transaction and flush, rather than being saved entity by entity.
+   */
+  private List<T> cascadeUpdateAll(List<T> toUpdate, List<T> sources) {
+    final CascadeUpdateSession session = new CascadeUpdateSession(
+      new CascadeUnitOfWork(isCascadeUnitOfWorkEnabled)
+    );
+    if (!isCascadeUnitOfWorkEnabled) return cascadeUpdateEach(
+      toUpdate,
+      sources,
+      session
+    );
+    return transactionTemplate.execute(
+      status -> {
+        final List<T> updated = cascadeUpdateEach(toUpdate, sources, session);
+        session.unitOfWork.flush(
+          type -> daoMap.get(type.getSimpleName()),
+          entityManager
+        );
+        updated.replaceAll(entity -> (T) session.unitOfWork.resolve(entity));
+        return updated;
+      }
+    );
+  }
+
+  private List<T> cascadeUpdateEach(
+    List<T> toUpdate,
+    List<T> sources,
+    CascadeUpdateSession session
+  ) {
+    List<T> updated = new ArrayList<>(toUpdate.size());
+    for (int i = 0; i < toUpdate.size(); i++) updated.add(
+      (T) cascadeUpdateImpl(toUpdate.get(i), sources.get(i), session, true)
+    );
+    return updated;
+  }
+
+  /**
+   * Copies all changed fields from source to toUpdate, and only saves toUpdate
+   * if at least one of its own fields has actually changed. Nested entities are
+   * handled the same way, so unchanged nested entities are never saved.
+   */
+  private Object cascadeUpdateImpl(
+    Object toUpdate,
+    Object source,
+    CascadeUpdateSession session,
+    boolean isTopLevel
+  ) {
+    toUpdate = deProxify(toUpdate);
+    source = deProxify(source);
+    //guards against cycles between nested entities
+    if (!session.unitOfWork.enter(toUpdate)) return toUpdate;
+    try {
+      return cascadeUpdateVisited(toUpdate, source, session, isTopLevel);
+    } finally {
+      session.unitOfWork.leave(toUpdate);
+    }
+  }
+
+  private Object cascadeUpdateVisited(
+    Object toUpdate,
+    Object source,
+    CascadeUpdateSession session,
+    boolean isTopLevel
+  ) {
     Class<?> currentClazz = toUpdate.getClass();
     String currentClazzName = currentClazz.getSimpleName();
-    logInfo(
+    if (isInfoLogged()) logInfo(
       "cascadeUpdateImpl({} toUpdate, {} source)",
       "cascade updating {}",
       currentClazzName,
       currentClazzName,
       currentClazzName
     );
+    final CascadeUpdater cascadeUpdater = reflectionCache.getCascadeUpdater(
+      currentClazz
+    );
+    final boolean isDirty = cascadeUpdater != null
+      ? cascadeUpdater.cascadeUpdate(toUpdate, source, session)
+      : reflectiveCascadeUpdate(toUpdate, source, session);
+    // nested results are discarded, so there's no point in looking them up
+    if (!isDirty) return isTopLevel ? managedInstanceOf(toUpdate) : toUpdate;
+    onWrite(currentClazz);
+    if (session.unitOfWork.isDeferred()) {
+      session.unitOfWork.registerDirty(toUpdate);
+      return toUpdate;
+    }
+    return daoMap.get(currentClazzName).save(toUpdate);
+  }
+
+  /**
+   * Unchanged entities are not saved, so as to still return the managed instance
+   * (as save(...) would have), a detached top level entity is loaded by its id.
+   */
+  private Object managedInstanceOf(Object entity) {
+    if (entityManager.contains(entity)) return entity;
+    final Object id = getId(entity, reflectionCache);
+    if (id == null) return entity;
+    return daoMap
+      .get(entity.getClass().getSimpleName())
+      .findById(id)
+      .orElse(entity);
+  }
+
+  //fallback for entities for which no cascade updater could be generated at compile time
+  private boolean reflectiveCascadeUpdate(
+    Object toUpdate,
+    Object source,
+    CascadeUpdateSession session
+  ) {
     Collection<Field> fieldsToUpdate = reflectionCache
       .getEntitiesCache()
-      .get(currentClazz.getSimpleName())
+      .get(toUpdate.getClass().getSimpleName())
       .getCascadeUpdatableFields();
+    boolean isDirty = false;
     for (Field currentField : fieldsToUpdate) {
       try {
         currentField.setAccessible(true);
         Object sourceFieldValue = currentField.get(source);
         //if field value is null, there's nothing to update to
         if (sourceFieldValue == null) continue;
+        Object targetFieldValue = currentField.get(toUpdate);
         //if field is an embedded entity, we need to recursively update all of its fields
-        if (isForeignKey(currentField, toUpdate)) {
-          Object targetFieldToUpdateValue = currentField.get(toUpdate);
-          cascadeUpdateImpl(targetFieldToUpdateValue, sourceFieldValue);
-          reflectionCache
-            .getEntitiesCache()
-            .get(currentField.getType().getSimpleName())
-            .getRelationshipSyncronizer()
-            .trySetBackpointer(
-              currentField,
-              targetFieldToUpdateValue,
-              toUpdate
-            );
+        if (isForeignKey(currentField)) {
+          if (targetFieldValue == null) {
+            targetFieldValue = defaultInstanceOf(currentField.getType());
+            currentField.set(toUpdate, targetFieldValue);
+            session.fieldChanged(toUpdate, currentField.getName());
+            isDirty = true;
+          }
+          cascadeUpdateImpl(
+            targetFieldValue,
+            sourceFieldValue,
+            session,
+            false
+          );
+          trySetBackpointer(currentField, targetFieldValue, toUpdate);
         }
         //if field is a foreign key collection, that's outside of this use case
-        else if (!isForeignKeyCollection(currentField)) currentField.set(
-          toUpdate,
-          sourceFieldValue
-        ); //else, (...finally) update field value
+        else if (
+          !isForeignKeyCollection(currentField) &&
+          !Objects.equals(targetFieldValue, sourceFieldValue)
+        ) {
+          //else, (...finally) update field value if it has changed
+          currentField.set(toUpdate, sourceFieldValue);
+          session.fieldChanged(toUpdate, currentField.getName());
+          isDirty = true;
+        }
       } catch (Exception e) {
         e.printStackTrace();
         throw new RuntimeException(e);
       }
     }
-    return daoMap.get(currentClazz.getSimpleName()).save(toUpdate);
+    return isDirty;
+  }
+
+  private void trySetBackpointer(
+    Field ownerField,
+    Object nestedInstance,
+    Object owner
+  ) {
+    if (
+      trySetGeneratedBackpointer(
+        ownerField.getType(),
+        ownerField.getName(),
+        nestedInstance,
+        owner
+      )
+    ) return;
+    trySetReflectiveBackpointer(ownerField, nestedInstance, owner);
+  }
+
+  private void trySetReflectiveBackpointer(
+    Field ownerField,
+    Object nestedInstance,
+    Object owner
+  ) {
+    reflectionCache
+      .getEntitiesCache()
+      .get(ownerField.getType().getSimpleName())
+      .getRelationshipSyncronizer()
+      .trySetBackpointer(ownerField, nestedInstance, owner);
+  }
+
+  /**
+   * @return false if no relationship synchronizer has been generated for nestedType,
+   * or if the generated one has no backpointer to set for the given owner field.
+   */
+  private boolean trySetGeneratedBackpointer(
+    Class<?> nestedType,
+    String ownerFieldName,
+    Object nestedInstance,
+    Object owner
+  ) {
+    final RelationshipSynchronizer<Object> synchronizer = (RelationshipSynchronizer<Object>) reflectionCache.getRelationshipSynchronizer(
+      nestedType
+    );
+    if (synchronizer == null) return false;
+    return synchronizer.trySetBackpointer(
+      ownerFieldName,
+      nestedInstance,
+      owner
+    );
+  }
+
+  @RequiredArgsConstructor
+  private class CascadeUpdateSession implements CascadeUpdateContext {
+
+    private final CascadeUnitOfWork unitOfWork;
+
+    @Override
+    public <E> E defaultInstanceOf(Class<E> type) {
+      return (E) DataManager.this.defaultInstanceOf(type);
+    }
+
+    @Override
+    public void fieldChanged(Object entity, String fieldName) {
+      if (isTraceLogged()) logTrace(
+        "cascadeUpdateImpl(...)",
+        "{}.{} has changed",
+        entity.getClass().getSimpleName(),
+        fieldName
+      );
+    }
+
+    @Override
+    public void cascadeUpdateNested(
+      Object owner,
+      String fieldName,
+      Class<?> fieldType,
+      Object toUpdate,
+      Object source
+    ) {
+      cascadeUpdateImpl(toUpdate, source, this, false);
+      if (
+        trySetGeneratedBackpointer(fieldType, fieldName, toUpdate, owner)
+      ) return;
+      final Field ownerField = reflectionCache
+        .getEntitiesCache()
+        .get(owner.getClass().getSimpleName())
+        .getFields()
+        .get(fieldName)
+        .getField();
+      trySetReflectiveBackpointer(ownerField, toUpdate, owner);
+    }
   }
 
   private boolean isForeignKeyCollection(Field f) {
@@ -773,23 +1657,11 @@ public class DataManager<T> {
     );
   }
 
-  private boolean isForeignKey(Field currentField, Object owner) {
-    try {
-      currentField.setAccessible(true);
-      boolean isForeignKey =
-        currentField.isAnnotationPresent(OneToOne.class) ||
-        currentField.isAnnotationPresent(ManyToOne.class);
-      if (isForeignKey) {
-        if (currentField.get(owner) == null) currentField.set(
-          owner,
-          defaultInstanceOf(currentField.getType())
-        );
-        return true;
-      }
-      return false;
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
+  private boolean isForeignKey(Field currentField) {
+    return (
+      currentField.isAnnotationPresent(OneToOne.class) ||
+      currentField.isAnnotationPresent(ManyToOne.class)
+    );
   }
 
   private Object defaultInstanceOf(Class<?> type) {
@@ -799,46 +1671,6 @@ public class DataManager<T> {
       .getDefaultInstance();
   }
 
-  private Method getMethodToInvoke(String resolverName, Object instance) {
-    return getMethodToInvoke(resolverName, new Class<?>[] {}, instance);
-  }
-
-  private Method getMethodToInvoke(
-    String resolverName,
-    Class<?>[] params,
-    Object instance
-  ) {
-    Method methodToInvoke = reflectionCache
-      .getResolversCache()
-      .get(immutableEntry(resolverName, params));
-    if (methodToInvoke == null) {
-      try {
-        if (params.length > 0) methodToInvoke =
-          instance
-            .getClass()
-            .getMethod(resolverName, params); else methodToInvoke =
-          instance.getClass().getMethod(resolverName);
-      } catch (NoSuchMethodException e) {
-        throw new RuntimeException(e);
-      }
-      reflectionCache
-        .getResolversCache()
-        .put(immutableEntry(resolverName, params), methodToInvoke);
-    }
-    return methodToInvoke;
-  }
-
-  private Object invoke(Method method, Object instance, Object... args) {
-    try {
-      if (args.length > 0) return method.invoke(
-        instance,
-        args
-      ); else return method.invoke(instance);
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
-
   public Page<T> freeTextSearchBy(FreeTextSearchPageRequest request) {
     return freeTextSearchBy(request, -1);
   }
@@ -847,6 +1679,7 @@ public class DataManager<T> {
     FreeTextSearchPageRequest request,
     long totalCount
   ) {
+    final long start = startTimer();
     try {
       if (
         request.getSearchTerm() == null || request.getSearchTerm().equals("")
@@ -860,83 +1693,353 @@ public class DataManager<T> {
         request.getSortBy(),
         reflectionCache
       );
-      Pageable paginator = DatafiStaticUtils.generatePageRequest(
-        request,
-        totalCount
-      );
-      Method methodToInvoke = getMethodToInvoke(
-        "freeTextSearch",
-        new Class<?>[] { String.class, Pageable.class },
-        dao
-      );
-      val result = (org.springframework.data.domain.Page) methodToInvoke.invoke(
-        dao,
-        request.getSearchTerm(),
-        paginator
-      );
-      logInfo(
+      final String searchTerm = request.getSearchTerm();
+      final Page<T> page = isKeysetPaged(request)
+        ? criteriaPaginator.fetchKeysetPage(
+          freeTextSearchSpecification(searchTerm),
+          request
+        )
+        : cachedFreeTextSearchPage(
+          searchTerm,
+          DatafiStaticUtils.generatePageRequest(request, totalCount),
+          isCountTotal(request)
+        );
+      if (isInfoLogged()) logInfo(
         "freeTextSearchBy(String searchTerm)",
         "found {} {} by searchTerm '{}'",
-        result.getTotalElements(),
+        page.getContent().size(),
         clazzSimpleNamePlural,
-        request.getSearchTerm()
+        searchTerm
       );
-      return new Page<>(result);
+      return page;
     } catch (Exception e) {
       logError(
         "freeTextSearchBy(String searchTerm, int offset, int limit, String sortBy, Sort.Direction sortDirection)",
         e.toString()
       );
       throw new RuntimeException(e);
+    } finally {
+      recordMetric("freeTextSearchBy", start);
     }
   }
 
+  private Page<T> cachedFreeTextSearchPage(
+    String searchTerm,
+    Pageable paginator,
+    boolean isCountTotal
+  ) {
+    if (!searchResultCache.isEnabled()) return freeTextSearchPage(
+      searchTerm,
+      paginator,
+      isCountTotal
+    );
+    final List<Object> queryKey = Arrays.asList(
+      searchTerm,
+      paginator.getPageNumber(),
+      paginator.getPageSize(),
+      paginator.getSort(),
+      isCountTotal
+    );
+    final Page<Object> cachedIds = searchResultCache.get(clazz, queryKey);
+    if (cachedIds != null) return withContent(
+      cachedIds,
+      findAllByIdInOrder(cachedIds.getContent())
+    );
+    final long generation = searchResultCache.generation(clazz);
+    final Page<T> page = freeTextSearchPage(
+      searchTerm,
+      paginator,
+      isCountTotal
+    );
+    searchResultCache.put(
+      clazz,
+      queryKey,
+      withContent(
+        page,
+        page
+          .getContent()
+          .stream()
+          .map(cachedEntityTypeInfo::getId)
+          .collect(Collectors.toList())
+      ),
+      generation
+    );
+    return page;
+  }
+
+  private static <C> Page<C> withContent(Page<?> page, List<C> content) {
+    final Page<C> result = new Page<>();
+    result.setContent(content);
+    result.setTotalPagesCount(page.getTotalPagesCount());
+    result.setTotalItemsCount(page.getTotalItemsCount());
+    result.setPageNumber(page.getPageNumber());
+    result.setHasNext(page.getHasNext());
+    return result;
+  }
+
+  private Page<T> freeTextSearchPage(
+    String searchTerm,
+    Pageable paginator,
+    boolean isCountTotal
+  ) {
+    final Page<T> indexedPage = indexedFreeTextSearchPage(
+      searchTerm,
+      paginator
+    );
+    if (indexedPage != null) return indexedPage;
+    //native full text search queries are ordered by relevance, unless explicitly sorted
+    String methodName = "freeTextSearch";
+    if (
+      cachedEntityTypeInfo.getSearchDialect().isNative() &&
+      paginator.getSort().isSorted()
+    ) {
+      methodName = "freeTextSearchSorted";
+      paginator = toColumnSort(paginator);
+    }
+    if (!isCountTotal) return new Page<>(
+      freeTextSearchSlice(methodName, searchTerm, paginator)
+    );
+    if (countCache.isEnabled()) return new Page<>(
+      freeTextSearchSlice(methodName, searchTerm, paginator),
+      countCache.get(
+        clazz,
+        Arrays.asList("freeTextSearch", searchTerm),
+        () ->
+          (Long) dispatchTable.invoke(
+            DispatchKind.METHOD,
+            "freeTextSearchCount",
+            freeTextSearchCountParams,
+            dao,
+            searchTerm
+          )
+      )
+    );
+    return new Page<>(
+      (org.springframework.data.domain.Page<T>) dispatchTable.invoke(
+        DispatchKind.METHOD,
+        methodName,
+        freeTextSearchParams,
+        dao,
+        searchTerm,
+        paginator
+      )
+    );
+  }
+
+  /**
+   * Serves a free text search from the in memory search index, if there is one for this entity.
+   * The total count is always exact, as all matching ids are known up front.
+   * Sorted searches are only served from the index if there are few enough matches
+   * to be fetched and sorted by id in a single query.
+   *
+   * @return the resulting page, or null if the search must go to the database.
+   */
+  private Page<T> indexedFreeTextSearchPage(
+    String searchTerm,
+    Pageable paginator
+  ) {
+    final List<Object> ids = freeTextSearchIndexes.search(clazz, searchTerm);
+    if (ids == null) return null;
+    if (ids.isEmpty()) return new Page<>(
+      new PageImpl<>(new ArrayList<>(), paginator, 0)
+    );
+    final List<T> content;
+    if (paginator.getSort().isUnsorted()) {
+      ids.sort((first, second) -> ((Comparable) first).compareTo(second));
+      final int from = (int) Math.min(paginator.getOffset(), ids.size());
+      final int to = Math.min(from + paginator.getPageSize(), ids.size());
+      content = findAllByIdInOrder(ids.subList(from, to));
+    } else if (ids.size() <= maxSortedSearchCandidates) {
+      final String idName = cachedEntityTypeInfo.getIdField().getName();
+      content =
+        criteriaPaginator
+          .fetchSlice(
+            (root, query, criteriaBuilder) -> root.get(idName).in(ids),
+            paginator
+          )
+          .getContent();
+    } else return null;
+    return new Page<>(new PageImpl<>(content, paginator, ids.size()));
+  }
+
+  private List<T> findAllByIdInOrder(List<Object> ids) {
+    final Map<Object, T> byId = new HashMap<>();
+    for (T entity : (List<T>) dao.findAllById(ids)) byId.put(
+      cachedEntityTypeInfo.getId(entity),
+      entity
+    );
+    final List<T> result = new ArrayList<>(ids.size());
+    for (Object id : ids) {
+      final T entity = byId.get(id);
+      if (entity != null) result.add(entity);
+    }
+    return result;
+  }
+
+  private Slice<T> freeTextSearchSlice(
+    String methodName,
+    String searchTerm,
+    Pageable paginator
+  ) {
+    return (Slice<T>) dispatchTable.invoke(
+      DispatchKind.METHOD,
+      methodName + "Slice",
+      freeTextSearchParams,
+      dao,
+      searchTerm,
+      paginator
+    );
+  }
+
+  /**
+   * Native queries are sorted by column name rather than by attribute name. The column names
+   * are wrapped in parentheses, such that spring data does not qualify them with an alias.
+   */
+  private Pageable toColumnSort(Pageable paginator) {
+    final AbstractEntityPersister persister = (AbstractEntityPersister) entityManager
+      .getEntityManagerFactory()
+      .unwrap(SessionFactoryImplementor.class)
+      .getMetamodel()
+      .entityPersister(clazz);
+    Sort sort = Sort.unsorted();
+    for (Sort.Order order : paginator.getSort()) sort =
+      sort.and(
+        JpaSort.unsafe(
+          order.getDirection(),
+          "(" + persister.getPropertyColumnNames(order.getProperty())[0] + ")"
+        )
+      );
+    return org.springframework.data.domain.PageRequest.of(
+      paginator.getPageNumber(),
+      paginator.getPageSize(),
+      sort
+    );
+  }
+
+  /**
+   * @param countKey identifies the query for the purpose of caching its total count,
+   *                 or null if the query cannot be identified (i.e. arbitrary specifications).
+   */
+  private Page<T> fetchPage(
+    Specification<T> specification,
+    PageRequest request,
+    Object countKey
+  ) {
+    if (isKeysetPaged(request)) return criteriaPaginator.fetchKeysetPage(
+      specification,
+      request
+    );
+    final long totalCount = request.getFetchAll()
+      ? count(specification, countKey)
+      : -1;
+    final Pageable pageable = DatafiStaticUtils.generatePageRequest(
+      request,
+      totalCount
+    );
+    if (!isCountTotal(request)) return new Page<>(
+      criteriaPaginator.fetchSlice(specification, pageable)
+    );
+    if (countKey != null && countCache.isEnabled()) return new Page<>(
+      criteriaPaginator.fetchSlice(specification, pageable),
+      count(specification, countKey)
+    );
+    return new Page<>(dao.findAll(specification, pageable));
+  }
+
+  private long count(Specification<T> specification, Object countKey) {
+    if (countKey == null) return dao.count(specification);
+    return countCache.get(clazz, countKey, () -> dao.count(specification));
+  }
+
+  private static boolean isKeysetPaged(PageRequest request) {
+    return (
+      Boolean.TRUE.equals(request.getKeysetPaging()) && !request.getFetchAll()
+    );
+  }
+
+  private static boolean isCountTotal(PageRequest request) {
+    return !Boolean.FALSE.equals(request.getCountTotal());
+  }
+
+  /**
+   * Runtime equivalent of the generated freeTextSearch query, for use with keyset paging.
+   */
+  private Specification<T> freeTextSearchSpecification(String searchTerm) {
+    final List<String> searchFields = cachedEntityTypeInfo.getSearchFields();
+    if (searchFields.isEmpty()) throw new IllegalArgumentException(
+      clazzSimpleName + " is not annotated with @WithFreeTextSearchByFields"
+    );
+    return FreeTextSearchPredicate.toSpecification(
+      searchFields,
+      cachedEntityTypeInfo.isArchivable(),
+      searchTerm
+    );
+  }
+
   public <A extends Archivable> A archive(A input) {
-    Object id = cachedEntityTypeInfo.getId(input);
+    final long start = startTimer();
+    final Object id = cachedEntityTypeInfo.getId(input);
     final String simpleName = input.getClass().getSimpleName();
-    T toArchive = findById(id).orElse(null);
-    if (toArchive == null) DatafiStaticUtils.throwEntityNotFoundException(
-      simpleName,
-      id
-    );
-    ((A) toArchive).setIsArchived(true);
-    final A saved = (A) save(toArchive);
-    logInfo(
+    final A saved;
+    try {
+      T toArchive = findById(id).orElse(null);
+      if (toArchive == null) DatafiStaticUtils.throwEntityNotFoundException(
+        simpleName,
+        id
+      );
+      ((A) toArchive).setIsArchived(true);
+      saved = (A) save(toArchive);
+    } finally {
+      recordMetric("archive", start);
+    }
+    if (isInfoLogged()) logInfo(
       "archive({} input)",
       "archived {} with id {}",
       clazzSimpleName,
       clazzSimpleName,
-      id.toString()
+      id
     );
     return saved;
   }
 
   public <A extends Archivable> A deArchive(A input) {
-    Object id = cachedEntityTypeInfo.getId(input);
+    final long start = startTimer();
+    final Object id = cachedEntityTypeInfo.getId(input);
     final String simpleName = input.getClass().getSimpleName();
-    T toDeArchive = findById(id).orElse(null);
-    if (toDeArchive == null) DatafiStaticUtils.throwEntityNotFoundException(
-      simpleName,
-      id
-    );
-    ((A) toDeArchive).setIsArchived(false);
-    final A saved = (A) save(toDeArchive);
-    logInfo(
+    final A saved;
+    try {
+      T toDeArchive = findById(id).orElse(null);
+      if (toDeArchive == null) DatafiStaticUtils.throwEntityNotFoundException(
+        simpleName,
+        id
+      );
+      ((A) toDeArchive).setIsArchived(false);
+      saved = (A) save(toDeArchive);
+    } finally {
+      recordMetric("deArchive", start);
+    }
+    if (isInfoLogged()) logInfo(
       "deArchive({} input)",
       "de-archived {} with id {}",
       clazzSimpleName,
       clazzSimpleName,
-      id.toString()
+      id
     );
     return saved;
   }
 
   public <A extends Archivable> List<A> archiveCollection(Collection<A> input) {
-    List<Object> ids = DatafiStaticUtils.getIdList(input, reflectionCache);
-    List<T> toArchive = findAllById(ids);
-    toArchive.forEach(item -> ((A) item).setIsArchived(true));
-    final List<A> saved = (List<A>) saveAll(toArchive);
-    logInfo(
+    final long start = startTimer();
+    final List<A> saved;
+    try {
+      List<Object> ids = DatafiStaticUtils.getIdList(input, reflectionCache);
+      List<T> toArchive = findAllById(ids);
+      toArchive.forEach(item -> ((A) item).setIsArchived(true));
+      saved = (List<A>) saveAll(toArchive);
+    } finally {
+      recordMetric("archiveCollection", start);
+    }
+    if (isInfoLogged()) logInfo(
       "archiveCollection(Collection<{}> input)",
       "archived {} {}",
       clazzSimpleName,
@@ -949,11 +2052,17 @@ public class DataManager<T> {
   public <A extends Archivable> List<A> deArchiveCollection(
     Collection<A> input
   ) {
-    List<Object> ids = DatafiStaticUtils.getIdList(input, reflectionCache);
-    List<T> toDeArchive = findAllById(ids);
-    toDeArchive.forEach(item -> ((A) item).setIsArchived(false));
-    final List<A> saved = (List<A>) saveAll(toDeArchive);
-    logInfo(
+    final long start = startTimer();
+    final List<A> saved;
+    try {
+      List<Object> ids = DatafiStaticUtils.getIdList(input, reflectionCache);
+      List<T> toDeArchive = findAllById(ids);
+      toDeArchive.forEach(item -> ((A) item).setIsArchived(false));
+      saved = (List<A>) saveAll(toDeArchive);
+    } finally {
+      recordMetric("deArchiveCollection", start);
+    }
+    if (isInfoLogged()) logInfo(
       "deArchiveCollection(Collection<{}> input)",
       "de-archived {} {}",
       clazzSimpleName,
@@ -1,5 +1,7 @@
 package dev.sanda.datafi.service;
 
+import dev.sanda.datafi.service.async.AsyncDataManager;
+import dev.sanda.datafi.service.async.AsyncDataManagerExecutor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -7,6 +9,7 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PostConstruct;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -16,8 +19,13 @@ public class DataManagersCollector {
 
   private final List<DataManager> dataManagers;
 
+  private final AsyncDataManagerExecutor asyncDataManagerExecutor;
+
   private Map<Class, DataManager> dataManagersByEntityType;
 
+  private final Map<Class, AsyncDataManager> asyncDataManagersByEntityType =
+    new ConcurrentHashMap<>();
+
   @PostConstruct
   private void init() {
     dataManagersByEntityType =
@@ -31,4 +39,16 @@ public class DataManagersCollector {
   public <T> DataManager<T> getDataManagerForEntityType(Class<T> clazz) {
     return (DataManager<T>) dataManagersByEntityType.get(clazz);
   }
+
+  @SuppressWarnings("unchecked")
+  public <T> AsyncDataManager<T> getAsyncDataManagerForEntityType(
+    Class<T> clazz
+  ) {
+    final DataManager<T> dataManager = getDataManagerForEntityType(clazz);
+    if (dataManager == null) return null;
+    return asyncDataManagersByEntityType.computeIfAbsent(
+      clazz,
+      type -> new AsyncDataManager<>(dataManager, asyncDataManagerExecutor)
+    );
+  }
 }
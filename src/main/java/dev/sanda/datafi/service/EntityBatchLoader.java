@@ -0,0 +1,212 @@
+package dev.sanda.datafi.service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * DataLoader style batching of findById lookups. Each call to load(id) is queued rather than executed,
+ * and all queued ids are fetched with a single findAllById query (in chunks of maxBatchSize) once
+ * dispatch() is called - or once any of the returned futures is joined, whichever comes first.
+ * Loaded entities are kept in an identity map, such that each id is fetched at most once.
+ * <p>
+ * Futures derived from the returned futures (i.e. via thenApply(...)) also dispatch when joined on Java 9+.
+ * Futures which the loader knows nothing about - those combined via CompletableFuture.allOf(...) / anyOf(...),
+ * and derived futures on Java 8 - never complete until dispatch() is called, so dispatch() must be called
+ * explicitly before joining them.
+ * <p>
+ * Within a transaction, DataManager.batchLoader() returns the same loader for the duration of the
+ * transaction, and its identity map is cleared whenever an entity of the same type is written via a DataManager.
+ * Outside of a transaction, each call returns a new loader, which the caller should reuse for the unit of work.
+ * <p>
+ * For example, the following fetches all the authors with one query, rather than one per book:
+ * <pre>
+ * List&lt;CompletableFuture&lt;Optional&lt;Author&gt;&gt;&gt; authors = books.stream()
+ *   .map(book -&gt; authorLoader.load(book.getAuthorId()))
+ *   .collect(Collectors.toList());
+ * authorLoader.dispatch();
+ * </pre>
+ */
+public class EntityBatchLoader<T> {
+
+  private final Function<Collection<Object>, List<T>> batchFetcher;
+  private final Function<T, Object> idOf;
+  private final int maxBatchSize;
+  private final Map<Object, Optional<T>> loaded = new HashMap<>();
+  private final Map<Object, CompletableFuture<Optional<T>>> pending =
+    new LinkedHashMap<>();
+
+  public EntityBatchLoader(
+    Function<Collection<Object>, List<T>> batchFetcher,
+    Function<T, Object> idOf,
+    int maxBatchSize
+  ) {
+    this.batchFetcher = batchFetcher;
+    this.idOf = idOf;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  public synchronized CompletableFuture<Optional<T>> load(Object id) {
+    final Optional<T> existing = loaded.get(id);
+    if (existing != null) return CompletableFuture.completedFuture(existing);
+    return pending.computeIfAbsent(id, key -> new DispatchingFuture<>());
+  }
+
+  public CompletableFuture<List<T>> loadMany(Collection<?> ids) {
+    final List<CompletableFuture<Optional<T>>> futures = ids
+      .stream()
+      .map(this::load)
+      .collect(Collectors.toList());
+    final DispatchingFuture<List<T>> result = new DispatchingFuture<>();
+    CompletableFuture
+      .allOf(futures.toArray(new CompletableFuture[0]))
+      .whenComplete(
+        (done, error) -> {
+          if (error != null) {
+            result.completeExceptionally(error);
+            return;
+          }
+          result.complete(
+            futures
+              .stream()
+              .map(CompletableFuture::join)
+              .filter(Optional::isPresent)
+              .map(Optional::get)
+              .collect(Collectors.toList())
+          );
+        }
+      );
+    return result;
+  }
+
+  /**
+   * Fetches all queued ids, and completes their futures. Ids which do not exist are completed with an
+   * empty Optional. If the fetch fails, all queued futures are completed exceptionally.
+   */
+  public synchronized void dispatch() {
+    while (!pending.isEmpty()) {
+      final List<Object> batch = new ArrayList<>();
+      for (Object id : pending.keySet()) {
+        if (batch.size() == maxBatchSize) break;
+        batch.add(id);
+      }
+      final List<T> fetched;
+      try {
+        fetched = batchFetcher.apply(batch);
+      } catch (RuntimeException e) {
+        pending.values().forEach(future -> future.completeExceptionally(e));
+        pending.clear();
+        throw e;
+      }
+      for (T entity : fetched) loaded.put(
+        idOf.apply(entity),
+        Optional.of(entity)
+      );
+      for (Object id : batch) pending
+        .remove(id)
+        .complete(loaded.computeIfAbsent(id, missing -> Optional.empty()));
+    }
+  }
+
+  /**
+   * Clears the identity map, such that subsequent loads are fetched anew.
+   */
+  public synchronized void clear() {
+    loaded.clear();
+  }
+
+  /**
+   * @return the loader of the given entity type which is bound to the current transaction - creating
+   * and binding it if needed - or a new, unbound loader if there is no active transaction.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> EntityBatchLoader<T> forCurrentTransaction(
+    Class<T> entityType,
+    Supplier<EntityBatchLoader<T>> loaderFactory
+  ) {
+    if (
+      !TransactionSynchronizationManager.isSynchronizationActive()
+    ) return loaderFactory.get();
+    return (EntityBatchLoader<T>) boundLoaders()
+      .computeIfAbsent(entityType, type -> loaderFactory.get());
+  }
+
+  /**
+   * Clears the identity map of the loader of the given entity type which is bound to the current transaction, if any.
+   */
+  static void clearCurrent(Class<?> entityType) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+    final Map<Class<?>, EntityBatchLoader<?>> loaders = currentLoaders();
+    if (loaders == null) return;
+    final EntityBatchLoader<?> loader = loaders.get(entityType);
+    if (loader != null) loader.clear();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<Class<?>, EntityBatchLoader<?>> currentLoaders() {
+    return (Map<Class<?>, EntityBatchLoader<?>>) TransactionSynchronizationManager
+      .getResource(EntityBatchLoader.class);
+  }
+
+  private static Map<Class<?>, EntityBatchLoader<?>> boundLoaders() {
+    final Map<Class<?>, EntityBatchLoader<?>> loaders = currentLoaders();
+    if (loaders != null) return loaders;
+    final Map<Class<?>, EntityBatchLoader<?>> newLoaders = new HashMap<>();
+    TransactionSynchronizationManager.bindResource(
+      EntityBatchLoader.class,
+      newLoaders
+    );
+    TransactionSynchronizationManager.registerSynchronization(
+      new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(
+            EntityBatchLoader.class
+          );
+        }
+      }
+    );
+    return newLoaders;
+  }
+
+  /**
+   * Dispatches the loader's queue when joined before having been completed, such that
+   * callers need not call dispatch() explicitly.
+   */
+  private class DispatchingFuture<R> extends CompletableFuture<R> {
+
+    /**
+     * Overrides CompletableFuture.newIncompleteFuture() on Java 9+ (hence no @Override, as it doesn't
+     * exist on Java 8), such that futures derived via thenApply(...) etc. dispatch when joined as well.
+     */
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+      return new DispatchingFuture<>();
+    }
+
+    @Override
+    public R join() {
+      if (!isDone()) dispatch();
+      return super.join();
+    }
+
+    @Override
+    public R get() throws InterruptedException, ExecutionException {
+      if (!isDone()) dispatch();
+      return super.get();
+    }
+
+    @Override
+    public R get(long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+      if (!isDone()) dispatch();
+      return super.get(timeout, unit);
+    }
+  }
+}
@@ -0,0 +1,301 @@
+package dev.sanda.datafi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import dev.sanda.datafi.annotations.finders.CacheableEntity;
+import dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo;
+import dev.sanda.datafi.reflection.runtime_services.ReflectionCache;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.persistence.*;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ResolvableType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Read through cache of the entities annotated with @CacheableEntity, mapping ids to entity snapshots
+ * and unique keys (as used by findByUnique) to ids.
+ * Snapshots are deep copies of the basic, id, version and embedded attributes taken when an entity is loaded,
+ * and each hit returns a fresh copy of its snapshot - so callers can neither modify the cached state, nor observe
+ * each other's modifications. Entity types with associations or collections cannot be snapshotted, and are therefore
+ * not cached. Within an active transaction the cache is bypassed - neither read from, nor filled - such that
+ * the persistence context managed entity is returned (and changes made to it are picked up by dirty checking),
+ * and such that uncommitted state (which may yet be rolled back) is never cached.
+ * Whenever an entity type is written to, its cache is invalidated both immediately and once the surrounding
+ * transaction (if any) has completed, such that entities read by concurrent transactions in the meantime
+ * are not cached past the commit.
+ */
+@Slf4j
+@Component
+@SuppressWarnings("unchecked")
+public class EntityCache {
+
+  @Autowired
+  private ReflectionCache reflectionCache;
+
+  private final Map<Class<?>, EntityTypeCache> caches = new HashMap<>();
+
+  @PostConstruct
+  private void init() {
+    for (CachedEntityTypeInfo entityTypeInfo : reflectionCache
+      .getEntitiesCache()
+      .values()) {
+      if (entityTypeInfo.getCacheableEntity() == null) continue;
+      final AttributeCopier copier = AttributeCopier.of(
+        entityTypeInfo.getClazz()
+      );
+      if (copier == null) {
+        log.warn(
+          "{} is annotated with @CacheableEntity, but contains associations or collections " +
+          "which cannot be snapshotted - it will not be cached",
+          entityTypeInfo.getClazz().getSimpleName()
+        );
+        continue;
+      }
+      caches.put(
+        entityTypeInfo.getClazz(),
+        new EntityTypeCache(entityTypeInfo, copier)
+      );
+    }
+  }
+
+  public boolean isCached(Class<?> entityType) {
+    return caches.containsKey(entityType);
+  }
+
+  public <T> Optional<T> findById(
+    Class<T> entityType,
+    Object id,
+    Supplier<Optional<T>> loader
+  ) {
+    final EntityTypeCache cache = caches.get(entityType);
+    if (cache == null || isTransactionActive()) return loader.get();
+    final Object snapshot = cache.getSnapshot(id);
+    if (snapshot != null) return Optional.of((T) cache.copyOf(snapshot));
+    final long generation = cache.generation.get();
+    final Optional<T> loaded = loader.get();
+    loaded.ifPresent(entity -> cache.put(id, entity, generation));
+    return loaded;
+  }
+
+  public <T> Optional<T> findByUnique(
+    Class<T> entityType,
+    String attributeName,
+    Object attributeValue,
+    Supplier<Optional<T>> loader
+  ) {
+    final EntityTypeCache cache = caches.get(entityType);
+    if (cache == null || isTransactionActive()) return loader.get();
+    final List<Object> uniqueKey = Arrays.asList(attributeName, attributeValue);
+    final Object id = cache.idsByUniqueKey.getIfPresent(uniqueKey);
+    if (id != null) {
+      final Object snapshot = cache.getSnapshot(id);
+      if (snapshot != null) return Optional.of((T) cache.copyOf(snapshot));
+    }
+    final long generation = cache.generation.get();
+    final Optional<T> loaded = loader.get();
+    loaded.ifPresent(
+      entity -> {
+        final Object loadedId = cache.entityTypeInfo.getId(entity);
+        cache.put(loadedId, entity, generation);
+        cache.idsByUniqueKey.put(uniqueKey, loadedId);
+        if (
+          cache.generation.get() != generation
+        ) cache.idsByUniqueKey.invalidate(uniqueKey);
+      }
+    );
+    return loaded;
+  }
+
+  public boolean contains(Class<?> entityType, Object id) {
+    final EntityTypeCache cache = caches.get(entityType);
+    return cache != null && cache.byId.getIfPresent(id) != null;
+  }
+
+  /**
+   * @return a copy of the cached snapshot of the given entity, or null if it is not currently cached
+   * (or if a transaction is active).
+   */
+  public <T> T getIfPresent(Class<T> entityType, Object id) {
+    final EntityTypeCache cache = caches.get(entityType);
+    if (cache == null) return null;
+    final Object snapshot = cache.getSnapshot(id);
+    return snapshot != null ? (T) cache.copyOf(snapshot) : null;
+  }
+
+  public void invalidate(Class<?> entityType) {
+    final EntityTypeCache cache = caches.get(entityType);
+    if (cache == null) return;
+    cache.invalidateAll();
+    AfterCompletionInvalidation.register(
+      this,
+      entityType,
+      type -> caches.get(type).invalidateAll()
+    );
+  }
+
+  /**
+   * @return the hit, miss, load and eviction statistics of the id to entity cache
+   * of each cached entity type, by entity type name.
+   */
+  public Map<String, CacheStats> stats() {
+    final Map<String, CacheStats> result = new TreeMap<>();
+    caches.forEach(
+      (entityType, cache) ->
+        result.put(entityType.getSimpleName(), cache.byId.stats())
+    );
+    return result;
+  }
+
+  /**
+   * @return the underlying id to entity caches, by entity type name - i.e. for binding to a metrics registry.
+   */
+  public Map<String, Cache<Object, Object>> caches() {
+    final Map<String, Cache<Object, Object>> result = new TreeMap<>();
+    caches.forEach(
+      (entityType, cache) -> result.put(entityType.getSimpleName(), cache.byId)
+    );
+    return result;
+  }
+
+  private static boolean isTransactionActive() {
+    return TransactionSynchronizationManager.isActualTransactionActive();
+  }
+
+  private static class EntityTypeCache {
+
+    private final CachedEntityTypeInfo entityTypeInfo;
+    private final Cache<Object, Object> byId;
+    private final Cache<List<Object>, Object> idsByUniqueKey;
+    private final AtomicLong generation = new AtomicLong();
+    private final AttributeCopier copier;
+
+    EntityTypeCache(
+      CachedEntityTypeInfo entityTypeInfo,
+      AttributeCopier copier
+    ) {
+      this.entityTypeInfo = entityTypeInfo;
+      this.copier = copier;
+      final CacheableEntity config = entityTypeInfo.getCacheableEntity();
+      this.byId =
+        Caffeine
+          .newBuilder()
+          .maximumSize(config.maxSize())
+          .expireAfterWrite(config.ttlSeconds(), TimeUnit.SECONDS)
+          .recordStats()
+          .build();
+      this.idsByUniqueKey =
+        Caffeine
+          .newBuilder()
+          .maximumSize(config.maxSize())
+          .expireAfterWrite(config.ttlSeconds(), TimeUnit.SECONDS)
+          .build();
+    }
+
+    // hits are not served within transactions, which need the managed entity
+    Object getSnapshot(Object id) {
+      return isTransactionActive() ? null : byId.getIfPresent(id);
+    }
+
+    void put(Object id, Object entity, long generationAtLoad) {
+      byId.put(id, copyOf(entity));
+      if (generation.get() != generationAtLoad) byId.invalidate(id);
+    }
+
+    void invalidateAll() {
+      generation.incrementAndGet();
+      byId.invalidateAll();
+      idsByUniqueKey.invalidateAll();
+    }
+
+    Object copyOf(Object entity) {
+      return copier.copyOf(entity);
+    }
+  }
+
+  /**
+   * Deep copies the basic, id, version and embedded attributes of an entity or embeddable.
+   */
+  private static class AttributeCopier {
+
+    private final Class<?> type;
+    private final List<Field> basicFields = new ArrayList<>();
+    private final Map<Field, AttributeCopier> embeddedFields =
+      new LinkedHashMap<>();
+
+    private AttributeCopier(Class<?> type) {
+      this.type = type;
+    }
+
+    /**
+     * @return null if type contains associations or collections, which cannot be snapshotted.
+     */
+    static AttributeCopier of(Class<?> type) {
+      final AttributeCopier copier = new AttributeCopier(type);
+      for (Field field : ReflectionCache.getClassFields(type)) {
+        if (
+          Modifier.isStatic(field.getModifiers()) ||
+          Modifier.isTransient(field.getModifiers()) ||
+          field.isAnnotationPresent(Transient.class) ||
+          field.getName().startsWith("$$_hibernate_")
+        ) continue;
+        // resolves generic attributes, i.e. BasePersistableEntity.id
+        final Class<?> fieldType = ResolvableType
+          .forField(field, type)
+          .resolve(field.getType());
+        if (
+          field.isAnnotationPresent(OneToOne.class) ||
+          field.isAnnotationPresent(ManyToOne.class) ||
+          field.isAnnotationPresent(OneToMany.class) ||
+          field.isAnnotationPresent(ManyToMany.class) ||
+          field.isAnnotationPresent(ElementCollection.class) ||
+          Collection.class.isAssignableFrom(fieldType) ||
+          Map.class.isAssignableFrom(fieldType)
+        ) return null;
+        field.setAccessible(true);
+        if (
+          field.isAnnotationPresent(Embedded.class) ||
+          field.isAnnotationPresent(EmbeddedId.class) ||
+          fieldType.isAnnotationPresent(Embeddable.class)
+        ) {
+          final AttributeCopier embeddedCopier = of(fieldType);
+          if (embeddedCopier == null) return null;
+          copier.embeddedFields.put(field, embeddedCopier);
+        } else copier.basicFields.add(field);
+      }
+      return copier;
+    }
+
+    @SneakyThrows
+    Object copyOf(Object instance) {
+      if (instance == null) return null;
+      final Object copy = CachedEntityTypeInfo.genDefaultInstance(type);
+      for (Field field : basicFields) field.set(
+        copy,
+        copyOfValue(field.get(instance))
+      );
+      for (Field field : embeddedFields.keySet()) field.set(
+        copy,
+        embeddedFields.get(field).copyOf(field.get(instance))
+      );
+      return copy;
+    }
+
+    // basic values are immutable, other than dates and arrays
+    private static Object copyOfValue(Object value) {
+      if (value instanceof Date) return ((Date) value).clone();
+      if (value instanceof byte[]) return ((byte[]) value).clone();
+      if (value instanceof char[]) return ((char[]) value).clone();
+      return value;
+    }
+  }
+}
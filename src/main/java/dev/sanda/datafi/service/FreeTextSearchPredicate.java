@@ -0,0 +1,84 @@
+package dev.sanda.datafi.service;
+
+import java.util.List;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * The single definition of the (JPQL dialect) free text search predicate: an entity matches if
+ * lower(field) LIKE lower(concat('%', searchTerm, '%')) for any of its search fields, and - if it
+ * is Archivable - it isn't archived.
+ * The generated freeTextSearch queries render it as JPQL, whereas keyset paged searches apply it
+ * as a criteria Specification, so both select exactly the same rows.
+ */
+public class FreeTextSearchPredicate {
+
+  public static final String SEARCH_TERM_PARAMETER = "searchTerm";
+
+  private static final String IS_ARCHIVED = "isArchived";
+
+  /**
+   * @return the predicate as a JPQL condition over the given entity alias, with the search term
+   * bound to the :searchTerm parameter.
+   */
+  public static String toJpql(
+    String alias,
+    List<String> searchFields,
+    boolean isArchivable
+  ) {
+    final StringBuilder result = new StringBuilder("(");
+    for (int i = 0; i < searchFields.size(); i++) {
+      if (i > 0) result.append(" OR ");
+      result
+        .append("lower(")
+        .append(alias)
+        .append(".")
+        .append(searchFields.get(i))
+        .append(") LIKE lower(concat('%', :")
+        .append(SEARCH_TERM_PARAMETER)
+        .append(", '%'))");
+    }
+    result.append(")");
+    if (isArchivable) result
+      .append(" AND ")
+      .append(alias)
+      .append(".")
+      .append(IS_ARCHIVED)
+      .append(" = false");
+    return result.toString();
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> Specification<T> toSpecification(
+    List<String> searchFields,
+    boolean isArchivable,
+    String searchTerm
+  ) {
+    return (root, query, criteriaBuilder) -> {
+      final Expression<String> pattern = criteriaBuilder.lower(
+        criteriaBuilder.concat(
+          criteriaBuilder.concat("%", criteriaBuilder.literal(searchTerm)),
+          "%"
+        )
+      );
+      final Predicate[] matches = new Predicate[searchFields.size()];
+      for (int i = 0; i < matches.length; i++) matches[i] =
+        criteriaBuilder.like(
+          criteriaBuilder.lower(
+            (Expression<String>) CriteriaPaginator.resolvePath(
+              root,
+              searchFields.get(i)
+            )
+          ),
+          pattern
+        );
+      final Predicate isMatch = criteriaBuilder.or(matches);
+      if (!isArchivable) return isMatch;
+      return criteriaBuilder.and(
+        isMatch,
+        criteriaBuilder.equal(root.get(IS_ARCHIVED), false)
+      );
+    };
+  }
+}
@@ -0,0 +1,120 @@
+package dev.sanda.datafi.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+import lombok.Value;
+
+/**
+ * The (sort key value, id) pair of the last item of a keyset paginated page, encoded as an opaque,
+ * url safe string. Values are encoded as plain text and parsed back according to the types of the
+ * sort key and id attributes - cursors are client supplied, so no (de)serialization is involved.
+ * Temporal values are encoded losslessly - java.time types and Timestamps as ISO-8601 strings,
+ * so that nanosecond precision sort keys neither skip nor repeat rows across pages.
+ */
+@Value
+class KeysetCursor {
+
+  Object sortValue;
+  Object id;
+
+  String encode() {
+    final String sortValueString = sortValue != null
+      ? toCursorString(sortValue)
+      : "";
+    final String raw =
+      sortValueString.length() + ":" + sortValueString + toCursorString(id);
+    return Base64
+      .getUrlEncoder()
+      .withoutPadding()
+      .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @param sortType the type of the sort key, or null if sorting by id only
+   */
+  static KeysetCursor decode(
+    String cursor,
+    Class<?> sortType,
+    Class<?> idType
+  ) {
+    try {
+      final String raw = new String(
+        Base64.getUrlDecoder().decode(cursor),
+        StandardCharsets.UTF_8
+      );
+      final int separator = raw.indexOf(':');
+      final int sortValueEnd =
+        separator + 1 + Integer.parseInt(raw.substring(0, separator));
+      final Object sortValue = sortType != null
+        ? fromCursorString(raw.substring(separator + 1, sortValueEnd), sortType)
+        : null;
+      final Object id = fromCursorString(raw.substring(sortValueEnd), idType);
+      return new KeysetCursor(sortValue, id);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+    }
+  }
+
+  private static String toCursorString(Object value) {
+    // Date.getTime() truncates a Timestamp's sub millisecond nanos
+    if (value instanceof java.sql.Timestamp) {
+      return ((java.sql.Timestamp) value).toInstant().toString();
+    }
+    if (value instanceof Date) return String.valueOf(((Date) value).getTime());
+    if (value instanceof Enum) return ((Enum<?>) value).name();
+    return value.toString();
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static Object fromCursorString(String value, Class<?> type) {
+    if (type == String.class) return value;
+    if (type == Long.class || type == long.class) return Long.valueOf(value);
+    if (type == Integer.class || type == int.class) return Integer.valueOf(
+      value
+    );
+    if (type == Short.class || type == short.class) return Short.valueOf(value);
+    if (type == Byte.class || type == byte.class) return Byte.valueOf(value);
+    if (type == Double.class || type == double.class) return Double.valueOf(
+      value
+    );
+    if (type == Float.class || type == float.class) return Float.valueOf(value);
+    if (
+      type == Boolean.class || type == boolean.class
+    ) return Boolean.valueOf(value);
+    if (
+      type == Character.class || type == char.class
+    ) return value.charAt(0);
+    if (type == BigDecimal.class) return new BigDecimal(value);
+    if (type == BigInteger.class) return new BigInteger(value);
+    if (type == UUID.class) return UUID.fromString(value);
+    if (type.isEnum()) return Enum.valueOf((Class<Enum>) type, value);
+    if (type == LocalDate.class) return LocalDate.parse(value);
+    if (type == LocalDateTime.class) return LocalDateTime.parse(value);
+    if (type == LocalTime.class) return LocalTime.parse(value);
+    if (type == Instant.class) return Instant.parse(value);
+    if (type == OffsetDateTime.class) return OffsetDateTime.parse(value);
+    if (type == ZonedDateTime.class) return ZonedDateTime.parse(value);
+    if (type == java.sql.Timestamp.class) return java.sql.Timestamp.from(
+      Instant.parse(value)
+    );
+    if (type == java.sql.Date.class) return new java.sql.Date(
+      Long.parseLong(value)
+    );
+    if (type == Date.class) return parseDate(value);
+    throw new IllegalArgumentException(
+      "Keyset paging is not supported for attributes of type " + type.getName()
+    );
+  }
+
+  // java.util.Date attributes are typically loaded as Timestamps, which are encoded as ISO-8601
+  private static Date parseDate(String value) {
+    return value.indexOf('T') >= 0
+      ? java.sql.Timestamp.from(Instant.parse(value))
+      : new Date(Long.parseLong(value));
+  }
+}
@@ -0,0 +1,19 @@
+package dev.sanda.datafi.service;
+
+/**
+ * Implemented by the per-entity relationship synchronizers which are generated at compile time.
+ * Sets @AutoSynchronized backpointers using plain field / accessor access, with the
+ * backpointer field for each owner field resolved at compile time rather than via reflection.
+ *
+ * @param <T> the entity type
+ */
+public interface RelationshipSynchronizer<T> {
+  Class<T> getEntityType();
+
+  /**
+   * Points the backpointer of toUpdate which corresponds to the given
+   * (@OneToOne / @ManyToOne) field of owner back at owner.
+   * @return whether a backpointer has been set.
+   */
+  boolean trySetBackpointer(String ownerFieldName, T toUpdate, Object owner);
+}
@@ -0,0 +1,101 @@
+package dev.sanda.datafi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.sanda.datafi.dto.Page;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional cache of free text search results, such that repeating the same search
+ * (same term, page and sort) re-fetches the matching entities by id rather than re-running the search.
+ * Each cached result is a Page whose content holds the ids of the matching entities, in order.
+ * Results are cached per entity type (bounded by datafi.search-cache.max-size, with caffeine's
+ * frequency based eviction), expire after datafi.search-cache.ttl-seconds, and are invalidated
+ * whenever an entity of that type is written via a DataManager - both immediately and once the
+ * surrounding transaction (if any) has completed, such that results read by concurrent searches
+ * in the meantime are not cached past the commit.
+ * Disabled unless datafi.search-cache.enabled is set to true.
+ */
+@Component
+public class SearchResultCache {
+
+  @Value("#{new Boolean('${datafi.search-cache.enabled:false}')}")
+  private Boolean isEnabled;
+
+  @Value("${datafi.search-cache.ttl-seconds:300}")
+  private long ttlSeconds;
+
+  @Value("${datafi.search-cache.max-size:10000}")
+  private long maxSize;
+
+  private final Map<Class<?>, Cache<Object, Page<Object>>> results =
+    new ConcurrentHashMap<>();
+  private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  public boolean isEnabled() {
+    return isEnabled;
+  }
+
+  /**
+   * @return the current generation of the given entity type's results, to be passed to put(...)
+   * once the result has been fetched.
+   */
+  public long generation(Class<?> entityType) {
+    return generationOf(entityType).get();
+  }
+
+  public Page<Object> get(Class<?> entityType, Object queryKey) {
+    return cacheOf(entityType).getIfPresent(queryKey);
+  }
+
+  /**
+   * Caches the given result, unless the entity type has been written to since the given generation -
+   * in which case the result may already be stale.
+   * @param queryKey identifies the search and its arguments - must implement equals() and hashCode()
+   */
+  public void put(
+    Class<?> entityType,
+    Object queryKey,
+    Page<Object> idsPage,
+    long generation
+  ) {
+    final Cache<Object, Page<Object>> cache = cacheOf(entityType);
+    cache.put(queryKey, idsPage);
+    if (generationOf(entityType).get() != generation) cache.invalidate(
+      queryKey
+    );
+  }
+
+  public void invalidate(Class<?> entityType) {
+    if (!isEnabled) return;
+    invalidateNow(entityType);
+    AfterCompletionInvalidation.register(this, entityType, this::invalidateNow);
+  }
+
+  private void invalidateNow(Class<?> entityType) {
+    generationOf(entityType).incrementAndGet();
+    final Cache<Object, Page<Object>> entityResults = results.get(entityType);
+    if (entityResults != null) entityResults.invalidateAll();
+  }
+
+  private AtomicLong generationOf(Class<?> entityType) {
+    return generations.computeIfAbsent(entityType, type -> new AtomicLong());
+  }
+
+  private Cache<Object, Page<Object>> cacheOf(Class<?> entityType) {
+    return results.computeIfAbsent(
+      entityType,
+      type ->
+        Caffeine
+          .newBuilder()
+          .maximumSize(maxSize)
+          .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+          .build()
+    );
+  }
+}
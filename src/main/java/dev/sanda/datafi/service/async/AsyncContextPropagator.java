@@ -0,0 +1,18 @@
+package dev.sanda.datafi.service.async;
+
+import java.util.function.Supplier;
+
+/**
+ * Carries thread bound context (i.e. the security context, or the logging MDC) from the thread which
+ * submits an AsyncDataManager operation to the thread which executes it.
+ * Any bean implementing this interface is applied to every AsyncDataManager operation.
+ */
+public interface AsyncContextPropagator {
+  /**
+   * Invoked on the submitting thread.
+   *
+   * @return a task which applies the submitting thread's context around the given task when executed,
+   * and restores the executing thread's previous context once done.
+   */
+  <R> Supplier<R> propagate(Supplier<R> task);
+}
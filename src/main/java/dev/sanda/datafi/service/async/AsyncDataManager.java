@@ -0,0 +1,133 @@
+package dev.sanda.datafi.service.async;
+
+import dev.sanda.datafi.dto.FreeTextSearchPageRequest;
+import dev.sanda.datafi.dto.Page;
+import dev.sanda.datafi.dto.PageRequest;
+import dev.sanda.datafi.service.DataManager;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Non blocking counterpart of DataManager, such that independent queries - i.e fetching a user,
+ * their orders and their preferences - can overlap rather than add up:
+ * <pre>
+ * CompletableFuture&lt;Optional&lt;User&gt;&gt; user = users.findById(userId);
+ * CompletableFuture&lt;List&lt;Order&gt;&gt; orders = orders.findBy("userId", userId);
+ * CompletableFuture.allOf(user, orders).join();
+ * </pre>
+ * Each operation runs in its own transaction on the AsyncDataManagerExecutor, and so returns detached entities.
+ * Any DataManager operation without an async counterpart here can be run via read(...) or write(...).
+ * Obtained via DataManagersCollector.getAsyncDataManagerForEntityType(...).
+ */
+@RequiredArgsConstructor
+public class AsyncDataManager<T> {
+
+  @NonNull
+  @Getter
+  private final DataManager<T> dataManager;
+
+  @NonNull
+  private final AsyncDataManagerExecutor executor;
+
+  /**
+   * Runs the given operation asynchronously, within a read only transaction.
+   */
+  public <R> CompletableFuture<R> read(Function<DataManager<T>, R> operation) {
+    return executor.submit(() -> operation.apply(dataManager), true);
+  }
+
+  /**
+   * Runs the given operation asynchronously, within a read / write transaction.
+   */
+  public <R> CompletableFuture<R> write(Function<DataManager<T>, R> operation) {
+    return executor.submit(() -> operation.apply(dataManager), false);
+  }
+
+  public CompletableFuture<Optional<T>> findById(Object id) {
+    return read(dataManager -> dataManager.findById(id));
+  }
+
+  public CompletableFuture<Boolean> existsById(Object id) {
+    return read(dataManager -> dataManager.existsById(id));
+  }
+
+  public CompletableFuture<List<T>> findAllById(Iterable<?> ids) {
+    return read(dataManager -> dataManager.findAllById(ids));
+  }
+
+  public CompletableFuture<List<T>> findAll() {
+    return read(DataManager::findAll);
+  }
+
+  public CompletableFuture<Page<T>> findAll(PageRequest request) {
+    return read(dataManager -> dataManager.findAll(request));
+  }
+
+  public CompletableFuture<List<T>> findAll(Specification<T> specification) {
+    return read(dataManager -> dataManager.findAll(specification));
+  }
+
+  public CompletableFuture<List<T>> findBy(
+    String attributeName,
+    Object attributeValue
+  ) {
+    return read(
+      dataManager -> dataManager.findBy(attributeName, attributeValue)
+    );
+  }
+
+  public CompletableFuture<List<T>> findAllBy(
+    String attributeName,
+    Object[] attributeValues
+  ) {
+    return read(
+      dataManager -> dataManager.findAllBy(attributeName, attributeValues)
+    );
+  }
+
+  public CompletableFuture<Optional<T>> findByUnique(
+    String attributeName,
+    Object attributeValue
+  ) {
+    return read(
+      dataManager -> dataManager.findByUnique(attributeName, attributeValue)
+    );
+  }
+
+  public CompletableFuture<Page<T>> freeTextSearchBy(
+    FreeTextSearchPageRequest request
+  ) {
+    return read(dataManager -> dataManager.freeTextSearchBy(request));
+  }
+
+  public CompletableFuture<Long> count() {
+    return read(DataManager::count);
+  }
+
+  public CompletableFuture<Long> count(Specification<T> specification) {
+    return read(dataManager -> dataManager.count(specification));
+  }
+
+  public <S extends T> CompletableFuture<S> save(S toSave) {
+    return write(dataManager -> dataManager.save(toSave));
+  }
+
+  public <S extends T> CompletableFuture<List<S>> saveAll(Iterable<S> toSave) {
+    return write(dataManager -> dataManager.saveAll(toSave));
+  }
+
+  public CompletableFuture<Void> deleteById(Object id) {
+    return write(
+      dataManager -> {
+        dataManager.deleteById(id);
+        return null;
+      }
+    );
+  }
+}
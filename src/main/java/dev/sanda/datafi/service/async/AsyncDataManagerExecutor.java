@@ -0,0 +1,147 @@
+package dev.sanda.datafi.service.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Executes AsyncDataManager operations - each in its own transaction, with the submitting thread's
+ * context propagated via the registered AsyncContextPropagator beans.
+ * Uses a virtual thread per task executor when running on a JDK which supports it (21+), unless
+ * datafi.async.virtual-threads is set to false. Otherwise falls back to a bounded pool of
+ * datafi.async.pool-size platform threads, queuing up to datafi.async.queue-capacity tasks
+ * (further submissions are rejected).
+ * Virtual threads are not pooled, so the number of concurrently executing operations is then bounded
+ * by a semaphore of datafi.async.max-concurrency permits - defaulting to the size of the Hikari
+ * connection pool - such that excess operations wait for a permit rather than for a connection
+ * (and time out doing so).
+ */
+@Slf4j
+@Component
+public class AsyncDataManagerExecutor {
+
+  @Value("#{new Boolean('${datafi.async.virtual-threads:true}')}")
+  private Boolean useVirtualThreads;
+
+  @Value("${datafi.async.pool-size:16}")
+  private int poolSize;
+
+  @Value("${datafi.async.queue-capacity:10000}")
+  private int queueCapacity;
+
+  @Value(
+    "${datafi.async.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}"
+  )
+  private int maxConcurrency;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private ObjectProvider<AsyncContextPropagator> contextPropagatorsProvider;
+
+  private ExecutorService executor;
+  // null when running on the bounded platform thread pool
+  private Semaphore concurrencyLimit;
+  private TransactionTemplate transactionTemplate;
+  private TransactionTemplate readOnlyTransactionTemplate;
+  private List<AsyncContextPropagator> contextPropagators;
+
+  @PostConstruct
+  private void init() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+    readOnlyTransactionTemplate.setReadOnly(true);
+    contextPropagators = new ArrayList<>();
+    contextPropagatorsProvider.orderedStream().forEach(contextPropagators::add);
+    executor = useVirtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+    if (executor == null) executor = newBoundedThreadPool(); else {
+      concurrencyLimit = new Semaphore(maxConcurrency);
+    }
+  }
+
+  @PreDestroy
+  private void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Runs the given task on the executor, within a new (read only, if so specified) transaction.
+   * The submitting thread's transaction - if any - is not visible to the task, as persistence contexts
+   * cannot be shared across threads; entities returned by the task are therefore detached.
+   */
+  public <R> CompletableFuture<R> submit(Supplier<R> task, boolean isReadOnly) {
+    final TransactionTemplate template = isReadOnly
+      ? readOnlyTransactionTemplate
+      : transactionTemplate;
+    Supplier<R> transactional = () -> template.execute(status -> task.get());
+    if (concurrencyLimit != null) transactional =
+      withConcurrencyLimit(transactional);
+    for (AsyncContextPropagator propagator : contextPropagators) transactional =
+      propagator.propagate(transactional);
+    return CompletableFuture.supplyAsync(transactional, executor);
+  }
+
+  private <R> Supplier<R> withConcurrencyLimit(Supplier<R> task) {
+    return () -> {
+      // blocking is cheap on a virtual thread
+      concurrencyLimit.acquireUninterruptibly();
+      try {
+        return task.get();
+      } finally {
+        concurrencyLimit.release();
+      }
+    };
+  }
+
+  private ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      final ExecutorService virtualThreadExecutor = (ExecutorService) Executors
+        .class.getMethod("newVirtualThreadPerTaskExecutor")
+        .invoke(null);
+      log.info(
+        "Executing async DataManager operations on virtual threads, at most {} at a time",
+        maxConcurrency
+      );
+      return virtualThreadExecutor;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private ExecutorService newBoundedThreadPool() {
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+      poolSize,
+      poolSize,
+      60L,
+      TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(queueCapacity),
+      runnable -> {
+        final Thread thread = new Thread(
+          runnable,
+          "datafi-async-" + threadCount.incrementAndGet()
+        );
+        thread.setDaemon(true);
+        return thread;
+      }
+    );
+    pool.allowCoreThreadTimeOut(true);
+    log.info(
+      "Executing async DataManager operations on a pool of {} platform threads",
+      poolSize
+    );
+    return pool;
+  }
+}
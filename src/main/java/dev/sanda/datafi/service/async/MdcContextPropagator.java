@@ -0,0 +1,32 @@
+package dev.sanda.datafi.service.async;
+
+import java.util.Map;
+import java.util.function.Supplier;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+
+/**
+ * Propagates the slf4j MDC, such that log statements of async operations carry the caller's
+ * correlation ids.
+ */
+@Component
+public class MdcContextPropagator implements AsyncContextPropagator {
+
+  @Override
+  public <R> Supplier<R> propagate(Supplier<R> task) {
+    final Map<String, String> context = MDC.getCopyOfContextMap();
+    return () -> {
+      final Map<String, String> previous = MDC.getCopyOfContextMap();
+      setContext(context);
+      try {
+        return task.get();
+      } finally {
+        setContext(previous);
+      }
+    };
+  }
+
+  private static void setContext(Map<String, String> context) {
+    if (context != null) MDC.setContextMap(context); else MDC.clear();
+  }
+}
@@ -0,0 +1,59 @@
+package dev.sanda.datafi.service.async;
+
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+import lombok.SneakyThrows;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+
+/**
+ * Propagates the spring security SecurityContext whenever spring security is on the classpath,
+ * such that method security and auditing see the caller's authentication.
+ * Resolved reflectively, as spring security is not a dependency of datafi.
+ */
+@Component
+@ConditionalOnClass(
+  name = "org.springframework.security.core.context.SecurityContextHolder"
+)
+public class SecurityContextPropagator implements AsyncContextPropagator {
+
+  private final Method getContext;
+  private final Method setContext;
+
+  @SneakyThrows
+  public SecurityContextPropagator() {
+    final Class<?> holder = Class.forName(
+      "org.springframework.security.core.context.SecurityContextHolder"
+    );
+    final Class<?> contextType = Class.forName(
+      "org.springframework.security.core.context.SecurityContext"
+    );
+    getContext = holder.getMethod("getContext");
+    setContext = holder.getMethod("setContext", contextType);
+  }
+
+  @Override
+  public <R> Supplier<R> propagate(Supplier<R> task) {
+    final Object context = getContext();
+    return () -> {
+      // restored rather than cleared, in case the executing thread has a context of its own
+      final Object previous = getContext();
+      setContext(context);
+      try {
+        return task.get();
+      } finally {
+        setContext(previous);
+      }
+    };
+  }
+
+  @SneakyThrows
+  private Object getContext() {
+    return getContext.invoke(null);
+  }
+
+  @SneakyThrows
+  private void setContext(Object context) {
+    setContext.invoke(null, context);
+  }
+}
@@ -0,0 +1,248 @@
+package dev.sanda.datafi.code_generator;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.junit.Assert.assertFalse;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import javax.tools.JavaFileObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs the annotation processor over a customer / order model, and verifies that the generated
+ * sources compile, along with the shape of the generated cascade updaters and relationship synchronizers.
+ */
+public class AnnotationProcessorTest {
+
+  private static Compilation compilation;
+
+  @BeforeClass
+  public static void compile() {
+    compilation =
+      javac()
+        .withProcessors(new AnnotationProcessor())
+        .compile(
+          application(),
+          customer(),
+          order(),
+          auditedAccount(),
+          account(),
+          invoice()
+        );
+  }
+
+  @Test
+  public void compilesGeneratedSources() {
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.model.CustomerDao");
+    assertThat(compilation).generatedSourceFile("test.model.OrderDao");
+  }
+
+  @Test
+  public void generatesCascadeUpdaters() {
+    assertThat(compilation)
+      .generatedSourceFile("test.model.OrderCascadeUpdater")
+      .contentsAsUtf8String()
+      .contains("implements CascadeUpdater<Order>");
+    // plain fields are copied if changed, foreign keys are cascaded into
+    assertThat(compilation)
+      .generatedSourceFile("test.model.OrderCascadeUpdater")
+      .contentsAsUtf8String()
+      .contains("Objects.equals(toUpdate.getNote(), source.getNote())");
+    assertThat(compilation)
+      .generatedSourceFile("test.model.OrderCascadeUpdater")
+      .contentsAsUtf8String()
+      .contains(
+        "context.cascadeUpdateNested(toUpdate, \"customer\", Customer.class"
+      );
+    // ids and collections are not cascade updated
+    assertThat(compilation)
+      .generatedSourceFile("test.model.CustomerCascadeUpdater")
+      .contentsAsUtf8String()
+      .doesNotContain("getOrders()");
+    assertThat(compilation)
+      .generatedSourceFile("test.model.CustomerCascadeUpdater")
+      .contentsAsUtf8String()
+      .doesNotContain("setId(");
+  }
+
+  @Test
+  public void generatesRelationshipSynchronizers() {
+    assertThat(compilation)
+      .generatedSourceFile("test.model.CustomerRelationshipSynchronizer")
+      .contentsAsUtf8String()
+      .contains("implements RelationshipSynchronizer<Customer>");
+    assertThat(compilation)
+      .generatedSourceFile("test.model.CustomerRelationshipSynchronizer")
+      .contentsAsUtf8String()
+      .contains("if (owner instanceof Order)");
+    assertThat(compilation)
+      .generatedSourceFile("test.model.CustomerRelationshipSynchronizer")
+      .contentsAsUtf8String()
+      .contains("case \"customer\":");
+    assertThat(compilation)
+      .generatedSourceFile("test.model.CustomerRelationshipSynchronizer")
+      .contentsAsUtf8String()
+      .contains("backpointers.add((Order) owner)");
+    // orders are not @AutoSynchronized, so there's nothing to synchronize
+    assertFalse(
+      compilation
+        .generatedSourceFile("test.model.OrderRelationshipSynchronizer")
+        .isPresent()
+    );
+  }
+
+  @Test
+  public void synchronizesInheritedBackpointers() {
+    assertThat(compilation)
+      .generatedSourceFile("test.model.AccountRelationshipSynchronizer")
+      .contentsAsUtf8String()
+      .contains("if (owner instanceof Invoice)");
+    assertThat(compilation)
+      .generatedSourceFile("test.model.AccountRelationshipSynchronizer")
+      .contentsAsUtf8String()
+      .contains("backpointers.add((Invoice) owner)");
+  }
+
+  @Test
+  public void rejectsProjectionsOfAssociations() {
+    final Compilation invalid = javac()
+      .withProcessors(new AnnotationProcessor())
+      .compile(
+        application(),
+        customer(),
+        JavaFileObjects.forSourceLines(
+          "test.model.Order",
+          "package test.model;",
+          "import dev.sanda.datafi.annotations.projections.WithProjection;",
+          "import javax.persistence.*;",
+          "@Entity",
+          "@Table(name = \"orders\")",
+          "@WithProjection(name = \"Summary\", fields = {\"note\", \"customer\"})",
+          "public class Order {",
+          "  @Id private Long id;",
+          "  private String note;",
+          "  @ManyToOne private Customer customer;",
+          "  public Long getId() { return id; }",
+          "  public void setId(Long id) { this.id = id; }",
+          "  public String getNote() { return note; }",
+          "  public void setNote(String note) { this.note = note; }",
+          "  public Customer getCustomer() { return customer; }",
+          "  public void setCustomer(Customer customer) { this.customer = customer; }",
+          "}"
+        )
+      );
+    assertThat(invalid).failed();
+    assertThat(invalid)
+      .hadErrorContaining(
+        "Projection OrderSummary refers to association or collection field customer"
+      );
+  }
+
+  private static JavaFileObject application() {
+    return JavaFileObjects.forSourceLines(
+      "test.TestApplication",
+      "package test;",
+      "@dev.sanda.datafi.annotations.MainClass",
+      "public class TestApplication {}"
+    );
+  }
+
+  private static JavaFileObject customer() {
+    return JavaFileObjects.forSourceLines(
+      "test.model.Customer",
+      "package test.model;",
+      "import dev.sanda.datafi.annotations.attributes.AutoSynchronized;",
+      "import java.util.Set;",
+      "import javax.persistence.*;",
+      "@Entity",
+      "public class Customer {",
+      "  @Id private Long id;",
+      "  private String name;",
+      "  @AutoSynchronized",
+      "  @OneToMany(mappedBy = \"customer\")",
+      "  private Set<Order> orders;",
+      "  public Long getId() { return id; }",
+      "  public void setId(Long id) { this.id = id; }",
+      "  public String getName() { return name; }",
+      "  public void setName(String name) { this.name = name; }",
+      "  public Set<Order> getOrders() { return orders; }",
+      "  public void setOrders(Set<Order> orders) { this.orders = orders; }",
+      "}"
+    );
+  }
+
+  private static JavaFileObject order() {
+    return JavaFileObjects.forSourceLines(
+      "test.model.Order",
+      "package test.model;",
+      "import javax.persistence.*;",
+      "@Entity",
+      "@Table(name = \"orders\")",
+      "public class Order {",
+      "  @Id private Long id;",
+      "  private String note;",
+      "  @ManyToOne private Customer customer;",
+      "  public Long getId() { return id; }",
+      "  public void setId(Long id) { this.id = id; }",
+      "  public String getNote() { return note; }",
+      "  public void setNote(String note) { this.note = note; }",
+      "  public Customer getCustomer() { return customer; }",
+      "  public void setCustomer(Customer customer) { this.customer = customer; }",
+      "}"
+    );
+  }
+
+  private static JavaFileObject auditedAccount() {
+    return JavaFileObjects.forSourceLines(
+      "test.model.AuditedAccount",
+      "package test.model;",
+      "import dev.sanda.datafi.annotations.attributes.AutoSynchronized;",
+      "import java.util.List;",
+      "import javax.persistence.*;",
+      "@MappedSuperclass",
+      "public abstract class AuditedAccount {",
+      "  @AutoSynchronized",
+      "  @OneToMany(mappedBy = \"account\")",
+      "  private List<Invoice> invoices;",
+      "  public List<Invoice> getInvoices() { return invoices; }",
+      "  public void setInvoices(List<Invoice> invoices) {",
+      "    this.invoices = invoices;",
+      "  }",
+      "}"
+    );
+  }
+
+  private static JavaFileObject account() {
+    return JavaFileObjects.forSourceLines(
+      "test.model.Account",
+      "package test.model;",
+      "import javax.persistence.*;",
+      "@Entity",
+      "public class Account extends AuditedAccount {",
+      "  @Id private Long id;",
+      "  public Long getId() { return id; }",
+      "  public void setId(Long id) { this.id = id; }",
+      "}"
+    );
+  }
+
+  private static JavaFileObject invoice() {
+    return JavaFileObjects.forSourceLines(
+      "test.model.Invoice",
+      "package test.model;",
+      "import javax.persistence.*;",
+      "@Entity",
+      "public class Invoice {",
+      "  @Id private Long id;",
+      "  @ManyToOne private Account account;",
+      "  public Long getId() { return id; }",
+      "  public void setId(Long id) { this.id = id; }",
+      "  public Account getAccount() { return account; }",
+      "  public void setAccount(Account account) { this.account = account; }",
+      "}"
+    );
+  }
+}
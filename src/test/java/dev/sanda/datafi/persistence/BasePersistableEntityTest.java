@@ -0,0 +1,56 @@
+package dev.sanda.datafi.persistence;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class BasePersistableEntityTest {
+
+  private static class Person extends StandardPersistableEntity {}
+
+  @Test
+  public void isNewBeforeFirstPersist() {
+    assertTrue(new Person().isNew());
+  }
+
+  @Test
+  public void preassignedIdsDoNotAffectNewness() {
+    final Person person = new Person();
+    person.id = new SimpleId(5L);
+    assertTrue(person.isNew());
+    person.init();
+    assertEquals(Long.valueOf(5L), person.getId().getId());
+  }
+
+  @Test
+  public void isNotNewOncePersisted() {
+    final Person person = new Person();
+    person.init();
+    assertNotNull(person.getId());
+    assertFalse(person.isNew());
+  }
+
+  @Test
+  public void loadedRowsAreNotNew() {
+    // as hydrated by hibernate - isFirstPersist is persisted as false
+    final Person person = new Person();
+    ReflectionTestUtils.setField(person, "isFirstPersist", false);
+    assertFalse(person.isNew());
+  }
+
+  @Test
+  public void updatedVersionsAreNotNew() {
+    final Person person = new Person();
+    ReflectionTestUtils.setField(person, "version", 3L);
+    assertFalse(person.isNew());
+  }
+
+  @Test
+  public void detachedCopiesMarkedExistingAreNotNew() {
+    final Person person = new Person();
+    person.id = new SimpleId(5L);
+    person.markExisting();
+    assertFalse(person.isNew());
+  }
+}
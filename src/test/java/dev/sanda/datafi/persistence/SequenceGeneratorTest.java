@@ -0,0 +1,88 @@
+package dev.sanda.datafi.persistence;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import org.junit.Test;
+
+public class SequenceGeneratorTest {
+
+  private static final int THREADS = 8;
+  private static final int IDS_PER_THREAD = 50_000;
+
+  @Test
+  public void issuesIncreasingIds() {
+    final SequenceGenerator sequenceGenerator = new SequenceGenerator(1);
+    long previous = sequenceGenerator.nextId();
+    for (int i = 0; i < 100_000; i++) {
+      final long next = sequenceGenerator.nextId();
+      assertTrue(next > previous);
+      previous = next;
+    }
+  }
+
+  @Test
+  public void issuesUniqueIdsInPerThreadOrderUnderContention()
+    throws Exception {
+    final SequenceGenerator sequenceGenerator = new SequenceGenerator(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    final CountDownLatch start = new CountDownLatch(1);
+    try {
+      final List<Future<long[]>> results = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) results.add(
+        executor.submit(
+          () -> {
+            start.await();
+            final long[] ids = new long[IDS_PER_THREAD];
+            for (int j = 0; j < ids.length; j++) ids[j] =
+              sequenceGenerator.nextId();
+            return ids;
+          }
+        )
+      );
+      start.countDown();
+      final Set<Long> allIds = new HashSet<>();
+      for (Future<long[]> result : results) {
+        final long[] ids = result.get(60, TimeUnit.SECONDS);
+        for (int j = 0; j < ids.length; j++) {
+          if (j > 0) assertTrue(ids[j] > ids[j - 1]);
+          assertTrue("duplicate id " + ids[j], allIds.add(ids[j]));
+        }
+      }
+      assertEquals(THREADS * IDS_PER_THREAD, allIds.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void reservesConsecutiveBlocks() {
+    final SequenceGenerator sequenceGenerator = new SequenceGenerator(1);
+    final long before = sequenceGenerator.nextId();
+    final IdBlock block = sequenceGenerator.nextIds(
+      SequenceGenerator.MAX_BLOCK_SIZE
+    );
+    final long after = sequenceGenerator.nextId();
+    final long[] ids = block.toArray();
+    assertEquals(SequenceGenerator.MAX_BLOCK_SIZE, ids.length);
+    assertTrue(ids[0] > before);
+    for (int i = 1; i < ids.length; i++) assertTrue(ids[i] > ids[i - 1]);
+    assertTrue(after > ids[ids.length - 1]);
+    for (int i = 0; i < ids.length; i++) assertEquals(ids[i], block.next());
+    assertFalse(block.hasNext());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsOversizedBlocks() {
+    new SequenceGenerator(1).nextIds(SequenceGenerator.MAX_BLOCK_SIZE + 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsInvalidNodeIds() {
+    new SequenceGenerator(1 << 10);
+  }
+}
@@ -0,0 +1,95 @@
+package dev.sanda.datafi.search;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.Test;
+
+public class TrigramIndexTest {
+
+  private static final String ALPHABET = "abcAB C";
+
+  @Test
+  public void matchesCaseInsensitiveSubstrings() {
+    final TrigramIndex index = new TrigramIndex();
+    index.put(1L, new String[] { "Hello World", null });
+    index.put(2L, new String[] { "yellow", "WORLDS" });
+    index.put(3L, new String[] { "other" });
+    assertEquals(ids(1L, 2L), new HashSet<>(index.search("ELLO")));
+    assertEquals(ids(1L, 2L), new HashSet<>(index.search("world")));
+    assertEquals(ids(), new HashSet<>(index.search("xyz")));
+  }
+
+  @Test
+  public void reflectsUpdatesAndRemovals() {
+    final TrigramIndex index = new TrigramIndex();
+    index.put(1L, new String[] { "alpha" });
+    index.put(1L, new String[] { "beta" });
+    assertTrue(index.search("alp").isEmpty());
+    assertEquals(ids(1L), new HashSet<>(index.search("bet")));
+    index.remove(1L);
+    assertTrue(index.search("bet").isEmpty());
+    assertEquals(0, index.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsShortTerms() {
+    new TrigramIndex().search("ab");
+  }
+
+  /**
+   * Compares the index against the semantics of "lower(field) LIKE lower('%' || term || '%')"
+   * over random values drawn from a small alphabet, such that matches are frequent.
+   */
+  @Test
+  public void matchesLikeQueries() {
+    final Random random = new Random(42);
+    final TrigramIndex index = new TrigramIndex();
+    final Map<Object, String[]> rows = new HashMap<>();
+    for (long id = 0; id < 500; id++) {
+      final String[] values = {
+        randomString(random, 12),
+        random.nextInt(4) == 0 ? null : randomString(random, 8),
+      };
+      rows.put(id, values);
+      index.put(id, values);
+    }
+    for (int i = 0; i < 500; i++) {
+      final String term = randomString(
+        random,
+        TrigramIndex.MIN_TERM_LENGTH + random.nextInt(3)
+      );
+      assertEquals(
+        "term '" + term + "'",
+        like(rows, term),
+        new HashSet<>(index.search(term))
+      );
+    }
+  }
+
+  private static Set<Object> like(Map<Object, String[]> rows, String term) {
+    final String lowerCaseTerm = term.toLowerCase(Locale.ROOT);
+    final Set<Object> result = new HashSet<>();
+    rows.forEach(
+      (id, values) -> {
+        for (String value : values) if (
+          value != null &&
+          value.toLowerCase(Locale.ROOT).contains(lowerCaseTerm)
+        ) result.add(id);
+      }
+    );
+    return result;
+  }
+
+  private static String randomString(Random random, int length) {
+    final StringBuilder result = new StringBuilder(length);
+    for (int i = 0; i < length; i++) result.append(
+      ALPHABET.charAt(random.nextInt(ALPHABET.length()))
+    );
+    return result.toString();
+  }
+
+  private static Set<Object> ids(Object... ids) {
+    return new HashSet<>(Arrays.asList(ids));
+  }
+}
@@ -0,0 +1,111 @@
+package dev.sanda.datafi.service;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class CountCacheTest {
+
+  private CountCache countCache;
+  private final AtomicLong rowCount = new AtomicLong(10);
+  private final AtomicLong countQueries = new AtomicLong();
+
+  @Before
+  public void setUp() {
+    countCache = new CountCache();
+    ReflectionTestUtils.setField(countCache, "isEnabled", true);
+    ReflectionTestUtils.setField(countCache, "ttlSeconds", 60L);
+    ReflectionTestUtils.setField(countCache, "maxSize", 100L);
+  }
+
+  @After
+  public void tearDown() {
+    TransactionSynchronizationManager.unbindResourceIfPossible(countCache);
+    if (
+      TransactionSynchronizationManager.isSynchronizationActive()
+    ) TransactionSynchronizationManager.clearSynchronization();
+  }
+
+  @Test
+  public void cachesCountsPerQuery() {
+    assertEquals(10, count("a"));
+    assertEquals(10, count("a"));
+    assertEquals(1, countQueries.get());
+    assertEquals(10, count("b"));
+    assertEquals(2, countQueries.get());
+  }
+
+  @Test
+  public void invalidatesOnWrite() {
+    count("a");
+    rowCount.set(11);
+    countCache.invalidate(String.class);
+    assertEquals(11, count("a"));
+    assertEquals(2, countQueries.get());
+  }
+
+  @Test
+  public void invalidatesOnlyTheWrittenType() {
+    count("a");
+    countCache.invalidate(Integer.class);
+    count("a");
+    assertEquals(1, countQueries.get());
+  }
+
+  @Test
+  public void reInvalidatesOnceTheTransactionCompletes() {
+    TransactionSynchronizationManager.initSynchronization();
+    countCache.invalidate(String.class);
+    // a concurrent query counts - and caches - the pre commit row count
+    assertEquals(10, count("a"));
+    rowCount.set(11);
+    TransactionSynchronizationManager
+      .getSynchronizations()
+      .forEach(
+        synchronization ->
+          synchronization.afterCompletion(
+            TransactionSynchronization.STATUS_COMMITTED
+          )
+      );
+    assertEquals(11, count("a"));
+  }
+
+  @Test
+  public void registersOneSynchronizationPerTransaction() {
+    TransactionSynchronizationManager.initSynchronization();
+    for (int i = 0; i < 100; i++) countCache.invalidate(String.class);
+    countCache.invalidate(Integer.class);
+    assertEquals(
+      1,
+      TransactionSynchronizationManager.getSynchronizations().size()
+    );
+    count("a");
+    TransactionSynchronizationManager
+      .getSynchronizations()
+      .forEach(
+        synchronization ->
+          synchronization.afterCompletion(
+            TransactionSynchronization.STATUS_COMMITTED
+          )
+      );
+    count("a");
+    assertEquals(2, countQueries.get());
+  }
+
+  private long count(Object queryKey) {
+    return countCache.get(
+      String.class,
+      queryKey,
+      () -> {
+        countQueries.incrementAndGet();
+        return rowCount.get();
+      }
+    );
+  }
+}
@@ -0,0 +1,99 @@
+package dev.sanda.datafi.service;
+
+import static org.junit.Assert.*;
+
+import dev.sanda.datafi.persistence.SimpleId;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class EntityBatchLoaderTest {
+
+  private static class Book {
+
+    private final SimpleId id;
+
+    private Book(long id) {
+      this.id = new SimpleId(id);
+    }
+  }
+
+  private final List<Collection<Object>> batches = new ArrayList<>();
+
+  private EntityBatchLoader<Book> loader(int maxBatchSize, long... existing) {
+    final Set<Long> existingIds = Arrays
+      .stream(existing)
+      .boxed()
+      .collect(Collectors.toSet());
+    return new EntityBatchLoader<>(
+      ids -> {
+        batches.add(new ArrayList<>(ids));
+        // fresh id instances, as hydrated by hibernate
+        return ids
+          .stream()
+          .map(id -> ((SimpleId) id).getId())
+          .filter(existingIds::contains)
+          .map(Book::new)
+          .collect(Collectors.toList());
+      },
+      book -> book.id,
+      maxBatchSize
+    );
+  }
+
+  @Test
+  public void matchesFetchedEntitiesBySimpleIdValue() {
+    final EntityBatchLoader<Book> loader = loader(10, 1L, 2L);
+    final CompletableFuture<Optional<Book>> first = loader.load(
+      new SimpleId(1L)
+    );
+    final CompletableFuture<Optional<Book>> second = loader.load(
+      new SimpleId(2L)
+    );
+    final CompletableFuture<Optional<Book>> missing = loader.load(
+      new SimpleId(3L)
+    );
+    loader.dispatch();
+    assertEquals(Long.valueOf(1L), first.join().get().id.getId());
+    assertEquals(Long.valueOf(2L), second.join().get().id.getId());
+    assertFalse(missing.join().isPresent());
+    assertEquals(1, batches.size());
+  }
+
+  @Test
+  public void fetchesEachSimpleIdOnce() {
+    final EntityBatchLoader<Book> loader = loader(10, 1L);
+    final CompletableFuture<Optional<Book>> first = loader.load(
+      new SimpleId(1L)
+    );
+    final CompletableFuture<Optional<Book>> duplicate = loader.load(
+      new SimpleId(1L)
+    );
+    assertSame(first, duplicate);
+    assertTrue(first.join().isPresent());
+    assertTrue(loader.load(new SimpleId(1L)).isDone());
+    assertEquals(1, batches.size());
+    assertEquals(1, batches.get(0).size());
+  }
+
+  @Test
+  public void loadsManyInOrderAcrossBatches() {
+    final EntityBatchLoader<Book> loader = loader(2, 1L, 2L, 3L);
+    final List<Book> books = loader
+      .loadMany(
+        Arrays.asList(
+          new SimpleId(3L),
+          new SimpleId(4L),
+          new SimpleId(1L),
+          new SimpleId(2L)
+        )
+      )
+      .join();
+    assertEquals(
+      Arrays.asList(3L, 1L, 2L),
+      books.stream().map(book -> book.id.getId()).collect(Collectors.toList())
+    );
+    assertEquals(2, batches.size());
+  }
+}
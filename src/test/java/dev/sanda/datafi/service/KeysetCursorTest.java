@@ -0,0 +1,135 @@
+package dev.sanda.datafi.service;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.Test;
+
+public class KeysetCursorTest {
+
+  private enum Status {
+    ACTIVE,
+  }
+
+  @Test
+  public void roundTripsSortValuesAndIds() {
+    assertRoundTrip("plain", String.class, 42L, Long.class);
+    assertRoundTrip("with:colons:1", String.class, "id:2", String.class);
+    assertRoundTrip(7, Integer.class, UUID.randomUUID(), UUID.class);
+    assertRoundTrip(new BigDecimal("12.500"), BigDecimal.class, 1L, Long.class);
+    assertRoundTrip(Status.ACTIVE, Status.class, 1L, Long.class);
+    assertRoundTrip(true, Boolean.class, 1L, Long.class);
+  }
+
+  @Test
+  public void roundTripsSortByIdOnly() {
+    final KeysetCursor decoded = KeysetCursor.decode(
+      new KeysetCursor(null, 5L).encode(),
+      null,
+      Long.class
+    );
+    assertNull(decoded.getSortValue());
+    assertEquals(5L, decoded.getId());
+  }
+
+  @Test
+  public void preservesTimestampNanos() {
+    final Timestamp timestamp = Timestamp.valueOf(
+      "2024-01-02 03:04:05.123456789"
+    );
+    final KeysetCursor decoded = roundTrip(
+      timestamp,
+      Timestamp.class,
+      1L,
+      Long.class
+    );
+    assertEquals(timestamp, decoded.getSortValue());
+    assertEquals(123456789, ((Timestamp) decoded.getSortValue()).getNanos());
+  }
+
+  @Test
+  public void preservesJavaTimePrecision() {
+    assertRoundTrip(
+      LocalDateTime.of(2024, 1, 2, 3, 4, 5, 123456789),
+      LocalDateTime.class,
+      1L,
+      Long.class
+    );
+    assertRoundTrip(
+      Instant.ofEpochSecond(1700000000L, 987654321),
+      Instant.class,
+      1L,
+      Long.class
+    );
+    assertRoundTrip(
+      OffsetDateTime.of(2024, 1, 2, 3, 4, 5, 1, ZoneOffset.ofHours(2)),
+      OffsetDateTime.class,
+      1L,
+      Long.class
+    );
+    assertRoundTrip(
+      ZonedDateTime.of(2024, 1, 2, 3, 4, 5, 1, ZoneId.of("Europe/Paris")),
+      ZonedDateTime.class,
+      1L,
+      Long.class
+    );
+    assertRoundTrip(new Date(1700000000123L), Date.class, 1L, Long.class);
+  }
+
+  @Test
+  public void decodesTimestampsOfDateAttributes() {
+    // a java.util.Date attribute, as loaded by hibernate
+    final Timestamp timestamp = Timestamp.valueOf(
+      "2024-01-02 03:04:05.123456789"
+    );
+    final KeysetCursor decoded = roundTrip(
+      timestamp,
+      Date.class,
+      1L,
+      Long.class
+    );
+    assertEquals(timestamp, decoded.getSortValue());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsMalformedCursors() {
+    KeysetCursor.decode("not a cursor", String.class, Long.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsCursorsOfAnotherType() {
+    KeysetCursor.decode(
+      new KeysetCursor("abc", 1L).encode(),
+      Long.class,
+      Long.class
+    );
+  }
+
+  private static void assertRoundTrip(
+    Object sortValue,
+    Class<?> sortType,
+    Object id,
+    Class<?> idType
+  ) {
+    final KeysetCursor decoded = roundTrip(sortValue, sortType, id, idType);
+    assertEquals(sortValue, decoded.getSortValue());
+    assertEquals(id, decoded.getId());
+  }
+
+  private static KeysetCursor roundTrip(
+    Object sortValue,
+    Class<?> sortType,
+    Object id,
+    Class<?> idType
+  ) {
+    return KeysetCursor.decode(
+      new KeysetCursor(sortValue, id).encode(),
+      sortType,
+      idType
+    );
+  }
+}
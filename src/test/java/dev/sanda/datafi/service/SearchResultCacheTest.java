@@ -0,0 +1,116 @@
+package dev.sanda.datafi.service;
+
+import static org.junit.Assert.*;
+
+import dev.sanda.datafi.dto.Page;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class SearchResultCacheTest {
+
+  private SearchResultCache searchResultCache;
+
+  @Before
+  public void setUp() {
+    searchResultCache = new SearchResultCache();
+    ReflectionTestUtils.setField(searchResultCache, "isEnabled", true);
+    ReflectionTestUtils.setField(searchResultCache, "ttlSeconds", 60L);
+    ReflectionTestUtils.setField(searchResultCache, "maxSize", 100L);
+  }
+
+  @After
+  public void tearDown() {
+    TransactionSynchronizationManager.unbindResourceIfPossible(
+      searchResultCache
+    );
+    if (
+      TransactionSynchronizationManager.isSynchronizationActive()
+    ) TransactionSynchronizationManager.clearSynchronization();
+  }
+
+  @Test
+  public void cachesResults() {
+    final Page<Object> idsPage = idsPage(1L, 2L);
+    put("term", idsPage);
+    assertSame(idsPage, searchResultCache.get(String.class, "term"));
+  }
+
+  @Test
+  public void invalidatesOnWrite() {
+    put("term", idsPage(1L));
+    searchResultCache.invalidate(String.class);
+    assertNull(searchResultCache.get(String.class, "term"));
+  }
+
+  @Test
+  public void invalidatesOnlyTheWrittenType() {
+    put("term", idsPage(1L));
+    searchResultCache.invalidate(Integer.class);
+    assertNotNull(searchResultCache.get(String.class, "term"));
+  }
+
+  @Test
+  public void doesNotCacheResultsFetchedBeforeAWrite() {
+    final long generation = searchResultCache.generation(String.class);
+    searchResultCache.invalidate(String.class);
+    searchResultCache.put(String.class, "term", idsPage(1L), generation);
+    assertNull(searchResultCache.get(String.class, "term"));
+  }
+
+  @Test
+  public void reInvalidatesOnceTheTransactionCompletes() {
+    TransactionSynchronizationManager.initSynchronization();
+    searchResultCache.invalidate(String.class);
+    // a concurrent search caches the pre commit result
+    put("term", idsPage(1L));
+    assertNotNull(searchResultCache.get(String.class, "term"));
+    TransactionSynchronizationManager
+      .getSynchronizations()
+      .forEach(
+        synchronization ->
+          synchronization.afterCompletion(
+            TransactionSynchronization.STATUS_COMMITTED
+          )
+      );
+    assertNull(searchResultCache.get(String.class, "term"));
+  }
+
+  @Test
+  public void registersOneSynchronizationPerTransaction() {
+    TransactionSynchronizationManager.initSynchronization();
+    for (int i = 0; i < 100; i++) searchResultCache.invalidate(String.class);
+    searchResultCache.invalidate(Integer.class);
+    assertEquals(
+      1,
+      TransactionSynchronizationManager.getSynchronizations().size()
+    );
+    put("term", idsPage(1L));
+    TransactionSynchronizationManager
+      .getSynchronizations()
+      .forEach(
+        synchronization ->
+          synchronization.afterCompletion(
+            TransactionSynchronization.STATUS_COMMITTED
+          )
+      );
+    assertNull(searchResultCache.get(String.class, "term"));
+  }
+
+  private void put(Object queryKey, Page<Object> idsPage) {
+    searchResultCache.put(
+      String.class,
+      queryKey,
+      idsPage,
+      searchResultCache.generation(String.class)
+    );
+  }
+
+  private static Page<Object> idsPage(Object... ids) {
+    return new Page<>(Arrays.asList(ids), null);
+  }
+}